@@ -0,0 +1,200 @@
+package nascar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// End to end load test of the weekly cycle, --picks then --results race after race, on generated seasons of
+// growing pool size. It runs in a fresh files/ directory under the working directory, the way the pool is run.
+// For every size it reports throughput, cycle latency percentiles, allocation and peak heap, and it stops at the
+// first size whose p99 cycle goes over the budget or that runs out of memory: where the design stops being usable.
+//
+//   ./gradlew :benchmarks:loadTest [-PloadTest="--sizes 10,1000,100000 --races 10 --budget 5000"] [-PloadTestHeap=4g]
+public class LoadTest {
+    static final int[] SIZES = { 10, 100, 1000, 10000, 100000, 1000000 };
+
+    private final File files = new File(Pool.FILES_DIR);
+    private final int cars;
+    private final int races;
+    private final long seed;
+
+    LoadTest(int cars, int races, long seed) {
+        this.cars = cars;
+        this.races = races;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = SIZES;
+        int cars = 40;
+        int races = 12;
+        long budgetMillis = 10000;
+        long seed = 2019;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--sizes":
+                    sizes = Arrays.stream(args[i + 1].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--cars":
+                    cars = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--races":
+                    races = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--budget":
+                    budgetMillis = Long.parseLong(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Report.setLevel(Report.Level.QUIET);
+        LoadTest test = new LoadTest(cars, races, seed);
+        PrintStream console = System.out;
+        console.println("Weekly cycle (--picks, --results) over " + races + " races of a " + cars
+                + " car field, p99 budget " + budgetMillis + "ms, in " + test.files.getAbsolutePath());
+
+        // untimed, so the JIT has seen the whole cycle before the first measurement
+        test.run(Math.min(100, sizes[0]), console);
+
+        console.println(String.format("%n%10s %10s %12s %9s %9s %9s %9s %12s %10s", "players", "races/s",
+                "players/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "alloc MB/s", "peak MB"));
+        for (int size : sizes) {
+            Result r;
+            try {
+                r = test.run(size, console);
+            } catch (OutOfMemoryError e) {
+                console.println(String.format("%10d out of memory (%s), the design stops here", size, e.getMessage()));
+                return;
+            }
+            console.println(r);
+            if (r.percentile(99) > budgetMillis * 1000000) {
+                console.println(String.format("%n%d players is past the budget: p99 cycle %dms > %dms", size,
+                        r.percentile(99) / 1000000, budgetMillis));
+                return;
+            }
+        }
+        console.println("\nEvery size stayed within the budget");
+    }
+
+    private Result run(int players, PrintStream console) throws IOException {
+        clear(files.toPath());
+        new Generator(players, cars, races, seed).write(files, true);
+        File staged = new File(files, Generator.STAGED_DIR);
+
+        System.gc();
+        List<MemoryPoolMXBean> heap = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heap.add(pool);
+            }
+        }
+
+        Result result = new Result(players, races);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            for (int race = 1; race <= races; ++race) {
+                String raceNum = Generator.raceNum(race);
+                String track = Generator.track(race);
+                File nextStandings = new File(files, Generator.prefix(race + 1) + "-standings.txt");
+                Files.deleteIfExists(nextStandings.toPath());
+
+                long cycle = System.nanoTime();
+                Pool.handleRawPicks(raceNum, track, true);
+                Files.copy(new File(staged, Generator.prefix(race) + "-results.txt").toPath(),
+                        new File(files, Generator.prefix(race) + "-results.txt").toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+                Pool.handleResults(raceNum, track, Generator.track(race + 1), false);
+                result.latencies[race - 1] = System.nanoTime() - cycle;
+
+                // the handlers report failures instead of throwing
+                if (!nextStandings.exists()) {
+                    throw new IllegalStateException("Race " + Generator.prefix(race) + " failed with " + players
+                            + " players");
+                }
+                try (Stream<String> lines = Files.lines(new File(files, Generator.prefix(race) + "-picks.txt")
+                        .toPath())) {
+                    result.entries += lines.count();
+                }
+            }
+            result.elapsed = System.nanoTime() - start;
+            result.allocated = allocatedBytes() - allocated;
+        } finally {
+            System.setOut(console);
+        }
+        for (MemoryPoolMXBean pool : heap) {
+            result.peakHeap += pool.getPeakUsage().getUsed();
+        }
+        return result;
+    }
+
+    // by every live thread, the fork-join workers scoring large pools included
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    private static void clear(Path dir) throws IOException {
+        if (Files.exists(dir)) {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+        Files.createDirectories(dir);
+    }
+
+    static class Result {
+        final int players;
+        final long[] latencies;
+        long entries;
+        long elapsed;
+        long allocated;
+        long peakHeap;
+
+        Result(int players, int races) {
+            this.players = players;
+            this.latencies = new long[races];
+        }
+
+        // nearest rank, in nanoseconds
+        long percentile(int p) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsed / 1e9;
+            return String.format("%10d %10.1f %12.0f %9.1f %9.1f %9.1f %9.1f %12.1f %10.1f", players,
+                    latencies.length / seconds, entries / seconds, percentile(50) / 1e6, percentile(90) / 1e6,
+                    percentile(99) / 1e6, percentile(100) / 1e6, allocated / seconds / (1 << 20),
+                    peakHeap / (double) (1 << 20));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package nascar;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    int poolSize;
+
+    PoolData data;
+
+    @Setup
+    public void setup() throws IOException {
+        PoolData.silence();
+        data = new PoolData(poolSize);
+    }
+
+    @Benchmark
+    public void results(Blackhole bh) {
+        bh.consume(new Pool.Results(data.results.getPath()));
+    }
+
+    @Benchmark
+    public void picks(Blackhole bh) {
+        bh.consume(new Pool.Players(data.picks.getPath()).getPlayers());
+    }
+
+    @Benchmark
+    public void standings(Blackhole bh) {
+        bh.consume(new Pool.Standings(data.standings.getPath()).getTotals());
+    }
+
+    @Benchmark
+    public void rawPicks(Blackhole bh) throws IOException {
+        LineScanner in = new LineScanner(data.rawPicks);
+        while (in.nextLine()) {
+            bh.consume(Pool.formatRawPick(in));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package nascar;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A last-minute burst: every thread submitting and editing picks for random players of the pool at once.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class PickWindowBenchmark {
+
+    @Param({ "1000", "100000" })
+    int poolSize;
+
+    PickWindow window;
+    String[] names;
+    int[][] picks;
+
+    @Setup
+    public void setup() {
+        PoolData.silence();
+        window = new PickWindow("01", "daytona", null);
+        names = new String[poolSize];
+        for (int i = 0; i < poolSize; ++i) {
+            StringBuilder sb = new StringBuilder("P");
+            for (int n = i; n > 0; n /= 26) {
+                sb.append((char) ('a' + n % 26));
+            }
+            names[i] = sb.toString();
+        }
+        picks = new int[64][];
+        for (int i = 0; i < picks.length; ++i) {
+            picks[i] = new int[] { i % 43, 43 + i % 7, 50 + i % 11, 61 + i % 13 };
+        }
+    }
+
+    @Benchmark
+    public PickWindow.Submission submit() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return window.submit(names[random.nextInt(poolSize)], picks[random.nextInt(picks.length)]);
+    }
+}
@@ -0,0 +1,100 @@
+package nascar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Synthetic pool files for the benchmarks: a 40 car field and poolSize entrants with letter-only names.
+class PoolData {
+    static final int[] FIELD = { 1, 2, 3, 4, 6, 8, 9, 10, 11, 12, 13, 14, 15, 17, 18, 19, 20, 21, 22, 24, 32, 34,
+            36, 37, 38, 41, 42, 43, 47, 48, 51, 52, 53, 62, 66, 88, 95, 96, 0, 7 };
+
+    final File dir;
+    final File results;
+    final File picks;
+    final File standings;
+    final File rawPicks;
+
+    PoolData(int poolSize) throws IOException {
+        SplittableRandom random = new SplittableRandom(poolSize);
+        dir = Files.createTempDirectory("nascar-bench").toFile();
+        dir.deleteOnExit();
+        results = write("01-bench-results.txt", resultsLines(random));
+        picks = write("01-bench-picks.txt", picksLines(random, poolSize, false));
+        standings = write("01-bench-standings.txt", standingsLines(random, poolSize));
+        rawPicks = write("01-bench-raw-picks.txt", picksLines(random, poolSize, true));
+    }
+
+    private File write(String name, List<String> lines) throws IOException {
+        File f = new File(dir, name);
+        f.deleteOnExit();
+        Files.write(f.toPath(), lines);
+        return f;
+    }
+
+    private static List<String> resultsLines(SplittableRandom random) {
+        int[] order = FIELD.clone();
+        shuffle(random, order);
+        List<String> lines = new ArrayList<>(order.length);
+        for (int i = 0; i < order.length; ++i) {
+            lines.add((i + 1) + "\t" + order[i] + "\tSome Driver\tChevrolet\t" + (400 - i) + "\t"
+                    + (1 + random.nextInt(order.length)) + "\t" + random.nextInt(60) + "\t" + Math.max(1, 60 - 2 * i)
+                    + "\tRunning");
+        }
+        return lines;
+    }
+
+    private static List<String> picksLines(SplittableRandom random, int poolSize, boolean raw) {
+        List<String> lines = new ArrayList<>(poolSize);
+        int[] cars = FIELD.clone();
+        for (int i = 0; i < poolSize; ++i) {
+            shuffle(random, cars);
+            if (raw) {
+                lines.add(String.format("#%d, %s takes..........(%d*), %d**, %d**, %d***", i + 1, name(i), cars[0],
+                        cars[1], cars[2], cars[3]));
+            } else {
+                lines.add(String.format("%s%2d, %2d, %2d, %2d", String.format("%-20s", name(i)).replace(' ', '.'),
+                        cars[0], cars[1], cars[2], cars[3]));
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> standingsLines(SplittableRandom random, int poolSize) {
+        List<String> lines = new ArrayList<>(poolSize);
+        for (int i = 0; i < poolSize; ++i) {
+            lines.add(Pool.formatStanding(name(i), random.nextInt(2000), 5 * (random.nextInt(21) - 10)));
+        }
+        return lines;
+    }
+
+    // player names may only contain letters
+    static String name(int i) {
+        StringBuilder sb = new StringBuilder("P");
+        do {
+            sb.append((char) ('a' + (i % 26)));
+            i /= 26;
+        } while (i > 0);
+        return sb.toString();
+    }
+
+    private static void shuffle(SplittableRandom random, int[] a) {
+        for (int i = a.length - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    // the scoring code reports to stdout; keep that out of the JMH output, and don't build audit lines nobody reads
+    static void silence() {
+        Report.setLevel(Report.Level.QUIET);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
@@ -0,0 +1,73 @@
+package nascar;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    int poolSize;
+
+    // a String, the generated benchmark code can't see Renderer.Format
+    @Param({ "TEXT", "CSV", "JSON", "HTML" })
+    String formatName;
+
+    Renderer.Format format;
+
+    Pool.Results results;
+    Pool.Players players;
+    List<Pool.Player> sortedPlayers;
+    List<Pool.Player> byTotal;
+
+    @Setup
+    public void setup() throws IOException {
+        PoolData.silence();
+        PoolData data = new PoolData(poolSize);
+        results = new Pool.Results(data.results.getPath());
+        players = new Pool.Players(data.picks.getPath());
+        players.applyStandings(new Pool.Standings(data.standings.getPath()));
+        players.applyResults(results, false, Rules.DEFAULT);
+        sortedPlayers = Ranking.sort(players.getPlayers());
+        byTotal = Pool.byTotal(players);
+        format = Renderer.Format.valueOf(formatName);
+    }
+
+    // rendering alone, the Writer discards everything
+    @Benchmark
+    public void standings() throws IOException {
+        Renderer renderer = Renderer.of(format, Writer.nullWriter());
+        renderer.begin(Renderer.Section.STANDINGS);
+        Pool.renderStandings(renderer, byTotal);
+        renderer.end();
+        renderer.finish();
+    }
+
+    @Benchmark
+    public void resultsEmail() throws IOException {
+        Renderer renderer = Renderer.of(format, Writer.nullWriter());
+        renderer.begin(Renderer.Section.EMAIL);
+        Pool.renderEmail(renderer, sortedPlayers, results);
+        renderer.end();
+        renderer.finish();
+    }
+}
@@ -0,0 +1,94 @@
+package nascar;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringBenchmark {
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    int poolSize;
+
+    Pool.Results results;
+    Pool.Players players;
+    int[] totals;
+    int[] balances;
+
+    @Setup
+    public void setup() throws IOException {
+        PoolData.silence();
+        PoolData data = new PoolData(poolSize);
+        results = new Pool.Results(data.results.getPath());
+        players = new Pool.Players(data.picks.getPath());
+        players.applyStandings(new Pool.Standings(data.standings.getPath()));
+        List<Pool.Player> list = players.getPlayers();
+        totals = new int[list.size()];
+        balances = new int[list.size()];
+        for (int i = 0; i < totals.length; ++i) {
+            totals[i] = list.get(i).getTotal();
+            balances[i] = list.get(i).getBalance();
+        }
+        players.applyResults(results, false, Rules.DEFAULT);
+    }
+
+    // applyResults accumulates into the weekly points, totals and balances, so every call starts the week over
+    private void resetPlayers() {
+        List<Pool.Player> list = players.getPlayers();
+        for (int i = 0; i < totals.length; ++i) {
+            Pool.Player p = list.get(i);
+            p.setPoints(0);
+            p.setTotal(totals[i]);
+            p.setBalance(balances[i]);
+        }
+    }
+
+    @Benchmark
+    public void applyResults() {
+        resetPlayers();
+        players.applyResults(results, false, Rules.DEFAULT);
+    }
+
+    @Benchmark
+    public void applyResultsQualifyingCanceled() {
+        resetPlayers();
+        players.applyResults(results, true, Rules.DEFAULT);
+    }
+
+    @Benchmark
+    public void payoutSort(Blackhole bh) {
+        bh.consume(Ranking.sort(players.getPlayers()));
+    }
+
+    @Benchmark
+    public void payoutTop3(Blackhole bh) {
+        bh.consume(Ranking.top(Ranking.keys(players.getPlayers()), 3));
+    }
+
+    @Benchmark
+    public int highestCar() {
+        int sum = 0;
+        for (Pool.Player p : players.getPlayers()) {
+            sum += results.getHighestCar(p.getPicks());
+        }
+        return sum;
+    }
+}
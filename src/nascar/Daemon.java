@@ -0,0 +1,361 @@
+package nascar;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import nascar.Pool.Standings;
+
+// Long running pool server, so a command doesn't pay for JVM startup and a cold JIT. Commands arrive one per line
+// over a loopback TCP port, a Unix-domain socket or, with "-", stdin. They run one at a time on the accepting
+// thread since they share the files directory and the resident season snapshot. The handlers print to
+// System.out, so for the length of a command that is the client, and every response ends with a "." line.
+class Daemon {
+    static final String END = ".";
+
+    private final String address;
+    private final ParseCache cache = new ParseCache();
+    private Season season;
+    private Set<Integer> canceled = Collections.emptySet();
+    private Snapshot snapshot;
+    private long snapshotModified;
+    // this week's picks, while they are being taken and then as they were at the deadline
+    private PickWindow window;
+    private PickWindow.Frozen frozen;
+    private boolean running = true;
+
+    Daemon(String address) {
+        this.address = address;
+    }
+
+    void serve() throws IOException {
+        Metrics.publish();
+        if ("-".equals(address)) {
+            session(System.in, System.out);
+            return;
+        }
+
+        Path socketPath = isPort(address) ? null : Paths.get(address);
+        try (ServerSocketChannel server = open(address)) {
+            System.out.println("Pool daemon listening on " + server.getLocalAddress());
+            while (running) {
+                try (SocketChannel client = server.accept()) {
+                    session(Channels.newInputStream(client), Channels.newOutputStream(client));
+                } catch (IOException e) {
+                    System.out.println("Failed to serve client: " + e.getMessage());
+                }
+            }
+        } finally {
+            if (null != socketPath) {
+                Files.deleteIfExists(socketPath);
+            }
+        }
+    }
+
+    private static boolean isPort(String address) {
+        return !address.isEmpty() && address.chars().allMatch(Character::isDigit);
+    }
+
+    private static SocketAddress socketAddress(String address) {
+        if (isPort(address)) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.valueOf(address));
+        }
+        return UnixDomainSocketAddress.of(address);
+    }
+
+    private static ServerSocketChannel open(String address) throws IOException {
+        if (isPort(address)) {
+            return ServerSocketChannel.open().bind(socketAddress(address));
+        }
+        Path path = Paths.get(address);
+        if (Files.isRegularFile(path)) {
+            throw new IllegalArgumentException("Not a socket, won't replace: " + path.toAbsolutePath());
+        }
+        // a socket file left behind by a daemon that didn't shut down cleanly
+        Files.deleteIfExists(path);
+        return ServerSocketChannel.open(StandardProtocolFamily.UNIX).bind(socketAddress(address));
+    }
+
+    private void session(InputStream in, OutputStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        PrintStream client = new PrintStream(out, false, StandardCharsets.UTF_8);
+        PrintStream console = System.out;
+        String line;
+        while (running && null != (line = reader.readLine())) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if ("QUIT".equalsIgnoreCase(line)) {
+                break;
+            }
+
+            long start = System.nanoTime();
+            System.setOut(client);
+            try {
+                execute(line.split("\\s+"));
+            } catch (Exception e) {
+                e.printStackTrace();
+                System.out.println("Failed to run command: " + e.getMessage());
+            } finally {
+                System.setOut(console);
+            }
+            client.println(END);
+            client.flush();
+            Report.info(line + " took " + ((System.nanoTime() - start) / 1000) + "us");
+        }
+        client.flush();
+    }
+
+    private void execute(String[] command) throws IOException {
+        switch (command[0].toUpperCase()) {
+            case "PING":
+                System.out.println("PONG");
+                return;
+            case "PICKS":
+                if (command.length != 3 && !(command.length == 4 && "--force".equalsIgnoreCase(command[3]))) {
+                    break;
+                }
+                Pool.handleRawPicks(command[1], command[2], command.length == 4);
+                return;
+            case "INGEST":
+                if (command.length != 4 && !(command.length == 5 && "--force".equalsIgnoreCase(command[4]))) {
+                    break;
+                }
+                Pool.handleIngest(command[1], command[2], command[3], command.length == 5);
+                return;
+            case "RESULTS":
+                if (command.length != 5) {
+                    break;
+                }
+                Pool.handleResults(command[1], command[2], command[3], command[4].toLowerCase().startsWith("y"),
+                        (null != frozen && frozen.isFor(command[1], command[2])) ? frozen : null);
+                snapshot = null;
+                return;
+            case "SEASON": {
+                Set<Integer> canceled = Collections.emptySet();
+                if (command.length == 3 && "--canceled".equalsIgnoreCase(command[1])) {
+                    canceled = Pool.parseRaceNums(command[2]);
+                } else if (command.length != 1) {
+                    break;
+                }
+                season(canceled);
+                return;
+            }
+            case "STANDINGS": {
+                if (command.length > 2) {
+                    break;
+                }
+                Snapshot snapshot = snapshot();
+                List<String> lines = (command.length == 1)
+                        ? snapshot.getStandings(snapshot.getRaces()).lines()
+                        : Pool.historyLines(snapshot, command[1]);
+                lines.forEach(l -> System.out.println(l));
+                return;
+            }
+            case "QUERY":
+                if (command.length < 2) {
+                    break;
+                }
+                if (null == season || season.getIndex().getRaces() == 0) {
+                    System.out.println("No season replayed yet, run SEASON first");
+                    return;
+                }
+                season.getIndex().query(Arrays.copyOfRange(command, 1, command.length))
+                        .forEach(l -> System.out.println(l));
+                return;
+            case "RIVALS": {
+                if (command.length > 3) {
+                    break;
+                }
+                if (null == season) {
+                    System.out.println("No season replayed yet, run SEASON first");
+                    return;
+                }
+                // two bytes per pair of players, so only kept from the first time they are asked for
+                if (null == season.getRivalries()) {
+                    season.setRivalries(new Rivalries());
+                    season.replay(canceled, Collections.emptySet());
+                }
+                List<String> names = Arrays.asList(command).subList(1, command.length);
+                Pool.rivalryLines(season.getRivalries(), names, 3).forEach(l -> System.out.println(l));
+                return;
+            }
+            case "OPEN":
+                if (command.length != 3) {
+                    break;
+                }
+                if (null != window && !window.isClosed()) {
+                    System.out.println("Picks for " + window.getRaceNum() + "-" + window.getTrack()
+                            + " are still open, FREEZE them first");
+                    return;
+                }
+                window = PickWindow.open(new File(Pool.FILES_DIR), command[1], command[2]);
+                frozen = null;
+                System.out.println("Picks for " + command[1] + "-" + command[2] + " open, "
+                        + ((0 == window.getFieldSize()) ? "any car" : window.getFieldSize() + " cars in the field"));
+                return;
+            case "SUBMIT": {
+                if (command.length != 6 && command.length != 7) {
+                    break;
+                }
+                if (null == window) {
+                    System.out.println("No picks open, run OPEN first");
+                    return;
+                }
+                int[] cars = new int[4];
+                for (int i = 0; i < 4; ++i) {
+                    cars[i] = Integer.parseInt(command[2 + i]);
+                }
+                long expected = (command.length == 7) ? Long.parseLong(command[6]) : PickWindow.ANY;
+                try {
+                    System.out.println("Accepted version " + window.submit(command[1], cars, expected).getVersion());
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    System.out.println("Rejected: " + e.getMessage());
+                }
+                return;
+            }
+            case "WINDOW":
+                if (command.length != 1) {
+                    break;
+                }
+                if (null == window) {
+                    System.out.println("No picks open");
+                    return;
+                }
+                System.out.println("Picks for " + window.getRaceNum() + "-" + window.getTrack() + " "
+                        + (window.isClosed() ? "frozen" : "open") + ", " + window.size() + " players in");
+                return;
+            case "FREEZE": {
+                if (command.length != 1 && !(command.length == 2 && "--force".equalsIgnoreCase(command[1]))) {
+                    break;
+                }
+                if (null == window) {
+                    System.out.println("No picks open");
+                    return;
+                }
+                // kept as the race's picks file too, so SEASON replays it like any other race. Like PICKS and
+                // INGEST it won't replace the race's files without --force, and the window stays open if it won't.
+                String filePrefix = new File(Pool.FILES_DIR, window.getRaceNum() + "-" + window.getTrack()).getPath();
+                File picksFile = new File(filePrefix + "-picks.txt");
+                File resultsFile = new File(filePrefix + "-results.txt");
+                try {
+                    Pool.clearRaceFiles(picksFile, resultsFile, command.length == 2);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Not frozen: " + e.getMessage());
+                    return;
+                }
+                frozen = window.freeze();
+                frozen.write(picksFile);
+                resultsFile.createNewFile();
+                System.out.println("Froze " + frozen.getSubmissions().size() + " players' picks, wrote "
+                        + picksFile.getPath());
+                return;
+            }
+            case "METRICS":
+                if (command.length == 2 && "--reset".equalsIgnoreCase(command[1])) {
+                    Metrics.get().reset();
+                    System.out.println("Metrics reset");
+                    return;
+                } else if (command.length != 1) {
+                    break;
+                }
+                Metrics.get().lines().forEach(l -> System.out.println(l));
+                return;
+            case "SHUTDOWN":
+                running = false;
+                System.out.println("Shutting down");
+                return;
+            case "HELP":
+                help();
+                return;
+            default:
+        }
+        System.out.println("Invalid command: " + String.join(" ", command));
+        help();
+    }
+
+    private static void help() {
+        System.out.println("Commands:");
+        System.out.println("  PICKS <race-num> <track> [--force]");
+        System.out.println("  INGEST <race-num> <track> <mbox-file|maildir> [--force]");
+        System.out.println("  RESULTS <race-num> <track> <next-track> <qualifying-canceled y|n>");
+        System.out.println("  SEASON [--canceled <race-num,...>]");
+        System.out.println("  STANDINGS [<player>]");
+        System.out.println("  QUERY <query>, after SEASON, where query is one of:");
+        SeasonIndex.usage().forEach(l -> System.out.println("  " + l));
+        System.out.println("  RIVALS [<player> [<opponent>]], after SEASON");
+        System.out.println("  OPEN <race-num> <track>");
+        System.out.println("  SUBMIT <player> <car> <car> <car> <car> [<expected-version>], after OPEN");
+        System.out.println("  WINDOW | FREEZE [--force]");
+        System.out.println("  METRICS [--reset]");
+        System.out.println("  PING | HELP | QUIT | SHUTDOWN");
+    }
+
+    // Replays the files directory, rescoring only the races downstream of a changed file. Read only: canceled is
+    // just this replay's, so it writes no standings files, snapshot or ledger entries, those are --results' to keep.
+    private void season(Set<Integer> canceled) throws IOException {
+        if (null == season) {
+            season = new Season(new File(Pool.FILES_DIR), cache);
+        } else {
+            season.rescan();
+        }
+        this.canceled = canceled;
+        Standings standings = season.replay(canceled, Collections.emptySet());
+        snapshot = null;
+
+        System.out.println("Recomputed " + season.getRecomputed() + " of " + season.getCompleted() + " races ("
+                + cache.getMisses() + " files parsed, " + cache.getHits() + " cache hits so far)");
+        Pool.renderStandings(standings);
+    }
+
+    // the season snapshot, read once and again only after it has been rewritten. Not mapped, RESULTS replaces the
+    // file while it is held.
+    private Snapshot snapshot() throws IOException {
+        File file = new File(Pool.FILES_DIR, Snapshot.FILE);
+        if (!file.canRead()) {
+            throw new IllegalArgumentException("No season snapshot yet: " + file.getAbsolutePath());
+        }
+        if (null == snapshot || file.lastModified() != snapshotModified) {
+            snapshotModified = file.lastModified();
+            snapshot = Snapshot.read(file);
+        }
+        return snapshot;
+    }
+
+    // client side: sends one command and prints the response
+    static void send(String address, String command) throws IOException {
+        SocketAddress to = socketAddress(address);
+        try (SocketChannel channel = SocketChannel.open(to)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            out.write((command + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            String line;
+            while (null != (line = in.readLine()) && !END.equals(line)) {
+                System.out.println(line);
+            }
+        }
+    }
+}
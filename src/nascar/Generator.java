@@ -0,0 +1,230 @@
+package nascar;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import nascar.Pool.Results;
+
+// Synthetic seasons of any size, for trying the pool out at scale. Every car has a strength that decides, with
+// some luck, where it starts and finishes; players favour the strong cars without all picking the same ones, and
+// now and then sit a race out. Raw picks come in the assorted shapes people actually type. A directory holds the
+// opening standings, every race's raw picks and either the results too, along with the picks file --picks would
+// make, so --season can replay it straight away, or (staged) the results in staged/ for feeding to the
+// --picks / --results cycle one race at a time.
+class Generator {
+    static final String STAGED_DIR = "staged";
+
+    private static final String[] TRACKS = { "daytona", "atlanta", "vegas", "phoenix", "fontana", "martinsville",
+            "texas", "bristol", "richmond", "talladega", "dover", "kansas", "charlotte", "pocono", "michigan",
+            "sonoma", "chicagoland", "daytonajuly", "kentucky", "loudon", "poconoaugust", "watkinsglen",
+            "michiganaugust", "bristolnight", "darlington", "indianapolis", "vegasfall", "richmondfall", "roval",
+            "doverfall", "talladegafall", "kansasfall", "texasfall", "martinsvillefall", "phoenixfall", "homestead" };
+    private static final String[] FIRST_NAMES = { "Al", "Bob", "Jay", "Jo", "Kim", "Lee", "Pat", "Sue", "Tom",
+            "Ann", "Ben", "Cal", "Dee", "Eve", "Gus", "Hal", "Ivy", "Jim", "Kay", "Lou", "Max", "Ned", "Ola", "Peg",
+            "Ray", "Sal", "Ted", "Uma", "Vic", "Wes", "Zoe", "Ada", "Bud", "Cy", "Dot", "Ed", "Flo", "Gil", "Hank",
+            "Ike" };
+    private static final String[] DRIVERS = { "Busch", "Logano", "Harvick", "Truex", "Hamlin", "Keselowski",
+            "Elliott", "Larson", "Blaney", "Bowyer", "Byron", "Almirola", "Newman", "Kenseth", "Johnson", "Dillon",
+            "Jones", "Bowman", "Stenhouse", "Suarez" };
+
+    private final int players;
+    private final int races;
+    private final SplittableRandom random;
+    private final int[] field;
+    private final double[] strength;
+
+    Generator(int players, int cars, int races, long seed) {
+        if (players < 1 || races < 1) {
+            throw new IllegalArgumentException("Need at least one player and one race");
+        }
+        if (cars < 4 || cars > Results.CARS) {
+            throw new IllegalArgumentException("Field size must be 4 to " + Results.CARS + " cars: " + cars);
+        }
+        this.players = players;
+        this.races = races;
+        this.random = new SplittableRandom(seed);
+
+        int[] numbers = new int[Results.CARS];
+        for (int c = 0; c < numbers.length; ++c) {
+            numbers[c] = c;
+        }
+        shuffle(numbers);
+        this.field = Arrays.copyOf(numbers, cars);
+        this.strength = new double[cars];
+        for (int i = 0; i < cars; ++i) {
+            strength[i] = gaussian();
+        }
+    }
+
+    // race numbers as handleResults names the next race
+    static String raceNum(int race) {
+        return (race < 10) ? "0" + race : "" + race;
+    }
+
+    // race is 1 based
+    static String track(int race) {
+        String track = TRACKS[(race - 1) % TRACKS.length];
+        return (race > TRACKS.length) ? track + ((race - 1) / TRACKS.length + 1) : track;
+    }
+
+    static String prefix(int race) {
+        return raceNum(race) + "-" + track(race);
+    }
+
+    // player names may only contain letters
+    static String name(int player) {
+        StringBuilder sb = new StringBuilder(FIRST_NAMES[player % FIRST_NAMES.length]);
+        for (int i = player / FIRST_NAMES.length; i > 0; i = (i - 1) / 26) {
+            sb.append((char) ('a' + (i - 1) % 26));
+        }
+        return sb.toString();
+    }
+
+    void write(File dir, boolean staged) throws IOException {
+        File results = staged ? new File(dir, STAGED_DIR) : dir;
+        if (!results.isDirectory() && !results.mkdirs()) {
+            throw new IllegalArgumentException("Can't create directory: " + results.getAbsolutePath());
+        }
+
+        try (BufferedWriter out = writer(new File(dir, prefix(1) + "-standings.txt"))) {
+            for (int p = 0; p < players; ++p) {
+                out.write(Pool.formatStanding(name(p), 0, 0));
+                out.newLine();
+            }
+        }
+
+        double[] popularity = new double[field.length];
+        double sum = 0;
+        for (int i = 0; i < field.length; ++i) {
+            popularity[i] = Math.exp(strength[i]);
+            sum += popularity[i];
+        }
+        for (int race = 1; race <= races; ++race) {
+            writePicks(dir, race, popularity, sum, !staged);
+            writeResults(new File(results, prefix(race) + "-results.txt"));
+        }
+    }
+
+    // the raw picks, and the picks file --picks would make of them
+    private void writePicks(File dir, int race, double[] popularity, double sum, boolean picksFile)
+            throws IOException {
+        try (BufferedWriter raw = writer(new File(dir, prefix(race) + "-raw-picks.txt"));
+                BufferedWriter picks = picksFile ? writer(new File(dir, prefix(race) + "-picks.txt")) : null) {
+            int[] cars = new int[4];
+            int n = 0;
+            for (int p = 0; p < players; ++p) {
+                // everyone plays the opener, after that about one in twenty sits a race out
+                if (race > 1 && random.nextInt(20) == 0) {
+                    continue;
+                }
+                for (int i = 0; i < 4; ++i) {
+                    cars[i] = pick(popularity, sum, cars, i);
+                }
+                String line = rawPick(++n, name(p), cars);
+                raw.write(line);
+                raw.newLine();
+                if (null != picks) {
+                    LineScanner in = new LineScanner(line.getBytes(StandardCharsets.UTF_8));
+                    in.nextLine();
+                    picks.write(Pool.formatRawPick(in));
+                    picks.newLine();
+                }
+            }
+        }
+    }
+
+    // a car weighted by popularity, not one of the first taken
+    private int pick(double[] popularity, double sum, int[] cars, int taken) {
+        while (true) {
+            double r = random.nextDouble() * sum;
+            int i = 0;
+            while (i < field.length - 1 && r >= popularity[i]) {
+                r -= popularity[i++];
+            }
+            boolean duplicate = false;
+            for (int t = 0; t < taken; ++t) {
+                duplicate |= cars[t] == field[i];
+            }
+            if (!duplicate) {
+                return field[i];
+            }
+        }
+    }
+
+    private String rawPick(int n, String name, int[] cars) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return "#" + n + ", " + name + " takes.........." + "(" + cars[0] + "*), " + cars[1] + "**, "
+                        + cars[2] + "**, " + cars[3] + "***";
+            case 1:
+                return "#" + n + ", " + name + " takes. " + cars[0] + " " + cars[1] + " " + cars[2] + " " + cars[3];
+            case 2:
+                return "#" + n + ", " + name + " Takes " + cars[0] + ", " + cars[1] + ", " + cars[2] + " and "
+                        + cars[3];
+            default:
+                return "#" + n + ", " + name + " takes the " + cars[0] + ", " + cars[1] + ", " + cars[2]
+                        + " and the " + cars[3] + "!";
+        }
+    }
+
+    // finish and start follow each car's strength plus luck; points as the race pays them, stage points included
+    private void writeResults(File file) throws IOException {
+        int n = field.length;
+        Integer[] finish = order(1.2);
+        Integer[] start = order(1.5);
+        int[] startOf = new int[n];
+        for (int i = 0; i < n; ++i) {
+            startOf[start[i]] = i + 1;
+        }
+        try (BufferedWriter out = writer(file)) {
+            for (int i = 0; i < n; ++i) {
+                int car = finish[i];
+                int points = (0 == i) ? 40 : Math.max(1, 36 - i);
+                if (i < 10) {
+                    points += random.nextInt(11);
+                }
+                int laps = 267 - ((i < n - 3) ? random.nextInt(1 + i / 4) : 40 + random.nextInt(200));
+                out.write((i + 1) + "\t" + field[car] + "\t" + DRIVERS[car % DRIVERS.length] + "\tChevrolet\t" + laps
+                        + "\t" + startOf[car] + "\t" + ((i < 5) ? random.nextInt(120) : 0) + "\t" + points
+                        + "\t" + ((i < n - 3) ? "Running" : "Accident"));
+                out.newLine();
+            }
+        }
+    }
+
+    // the field's indices ordered by strength plus luck
+    private Integer[] order(double luck) {
+        double[] performance = new double[field.length];
+        Integer[] order = new Integer[field.length];
+        for (int i = 0; i < field.length; ++i) {
+            performance[i] = strength[i] + luck * gaussian();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(performance[b], performance[a]));
+        return order;
+    }
+
+    private double gaussian() {
+        // Box-Muller, SplittableRandom has no nextGaussian on 17
+        double u = 1.0 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private void shuffle(int[] a) {
+        for (int i = a.length - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    private static BufferedWriter writer(File file) throws IOException {
+        return Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,372 @@
+package nascar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Builds a race's picks file from the picks e-mails themselves, an mbox file or a maildir directory exported from
+// the mail client. An mbox is mapped and split into messages in one pass, a maildir is one message per file, and
+// the messages are then scanned in parallel. Every "#<n>, <name> takes ..." line in a message body is a
+// submission; a player's latest one, by the message's Date header, is the one that counts. Lines that can't be
+// used go to a rejects file instead of failing the whole run.
+class Ingest {
+    static final int LEAF = 64;
+
+    private final File source;
+    private final List<Message> messages = new ArrayList<>();
+    private Found found;
+
+    Ingest(File source) throws IOException {
+        this.source = source;
+        if (source.isDirectory()) {
+            readMaildir();
+        } else if (source.canRead()) {
+            readMbox();
+        } else {
+            throw new IllegalArgumentException("Can't read mbox file or maildir: " + source.getAbsolutePath());
+        }
+    }
+
+    public int getMessages() {
+        return messages.size();
+    }
+
+    // scans every message, after which the picks, rejects and superseded count are available
+    void scan() {
+        found = (messages.size() <= LEAF)
+                ? scan(0, messages.size())
+                : ForkJoinPool.commonPool().invoke(new Scanner(0, messages.size()));
+    }
+
+    // the latest submission of every player, formatted for the picks file, in the order they came in
+    public List<Submission> getPicks() {
+        return found.latest.values().stream().sorted().collect(Collectors.toList());
+    }
+
+    public List<String> getRejects() {
+        return found.rejects;
+    }
+
+    public int getSuperseded() {
+        return found.superseded;
+    }
+
+    // an mbox message starts with a "From " line at the start of the file or after a blank line
+    private void readMbox() throws IOException {
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("mbox file too large, split it: " + source.getAbsolutePath());
+            }
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int size = buf.limit();
+            int start = -1;
+            boolean blank = true;
+            int line = 0;
+            while (line < size) {
+                int end = line;
+                while (end < size && buf.get(end) != '\n') {
+                    ++end;
+                }
+                if (blank && end - line >= 5 && buf.get(line) == 'F' && buf.get(line + 1) == 'r'
+                        && buf.get(line + 2) == 'o' && buf.get(line + 3) == 'm' && buf.get(line + 4) == ' ') {
+                    if (start >= 0) {
+                        messages.add(new Message(messages.size(), buf, start, line));
+                    }
+                    // headers start on the next line
+                    start = Math.min(end + 1, size);
+                }
+                blank = end == line || (end == line + 1 && buf.get(line) == '\r');
+                line = end + 1;
+            }
+            if (start >= 0) {
+                messages.add(new Message(messages.size(), buf, start, size));
+            }
+        }
+        if (messages.isEmpty()) {
+            throw new IllegalArgumentException("No messages in mbox file: " + source.getAbsolutePath());
+        }
+    }
+
+    // new/ and cur/ when it is a real maildir, otherwise every file in the directory
+    private void readMaildir() throws IOException {
+        List<Path> files = new ArrayList<>();
+        File cur = new File(source, "cur");
+        File fresh = new File(source, "new");
+        File[] dirs = (cur.isDirectory() || fresh.isDirectory()) ? new File[] { cur, fresh } : new File[] { source };
+        for (File dir : dirs) {
+            if (!dir.isDirectory()) {
+                continue;
+            }
+            try (Stream<Path> list = Files.list(dir.toPath())) {
+                list.filter(Files::isRegularFile).sorted().forEach(files::add);
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No messages in maildir: " + source.getAbsolutePath());
+        }
+        for (Path file : files) {
+            messages.add(new Message(messages.size(), file));
+        }
+    }
+
+    private Found scan(int from, int to) {
+        Found found = new Found();
+        for (int m = from; m < to; ++m) {
+            messages.get(m).scan(found);
+        }
+        return found;
+    }
+
+    private class Scanner extends RecursiveTask<Found> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Scanner(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Found compute() {
+            if (to - from <= LEAF) {
+                return scan(from, to);
+            }
+            int mid = from + Math.max(1, (to - from) / LEAF / 2) * LEAF;
+            Scanner right = new Scanner(mid, to);
+            right.fork();
+            Found left = new Scanner(from, mid).compute();
+            return left.merge(right.join());
+        }
+    }
+
+    // What a run of messages turned up: each player's latest submission and the rejected lines, in message order.
+    private static class Found {
+        final Map<String, Submission> latest = new HashMap<>();
+        final List<String> rejects = new ArrayList<>();
+        int superseded;
+
+        void add(Submission s) {
+            Submission previous = latest.get(s.getPlayer());
+            if (null == previous) {
+                latest.put(s.getPlayer(), s);
+                return;
+            }
+            ++superseded;
+            if (s.compareTo(previous) > 0) {
+                latest.put(s.getPlayer(), s);
+            }
+        }
+
+        Found merge(Found right) {
+            right.latest.values().forEach(this::add);
+            rejects.addAll(right.rejects);
+            superseded += right.superseded;
+            return this;
+        }
+    }
+
+    // A formatted pick and where it came from. Later is greater: by Date, then by position in the export.
+    static class Submission implements Comparable<Submission> {
+        final String player;
+        final String pick;
+        final String raw;
+        final long sent;
+        final int message;
+        final int line;
+
+        Submission(String player, String pick, String raw, long sent, int message, int line) {
+            this.player = player;
+            this.pick = pick;
+            this.raw = raw;
+            this.sent = sent;
+            this.message = message;
+            this.line = line;
+        }
+
+        public String getPlayer() {
+            return player;
+        }
+
+        public String getPick() {
+            return pick;
+        }
+
+        public String getRaw() {
+            return raw;
+        }
+
+        @Override
+        public int compareTo(Submission o) {
+            if (sent != o.sent) {
+                return Long.compare(sent, o.sent);
+            }
+            if (message != o.message) {
+                return Integer.compare(message, o.message);
+            }
+            return Integer.compare(line, o.line);
+        }
+    }
+
+    // One message, a slice of the mapped mbox or a maildir file, read when it is scanned.
+    private static class Message {
+        final int number;
+        final ByteBuffer mbox;
+        final int start;
+        final int end;
+        final Path file;
+
+        Message(int number, ByteBuffer mbox, int start, int end) {
+            this.number = number;
+            this.mbox = mbox;
+            this.start = start;
+            this.end = end;
+            this.file = null;
+        }
+
+        Message(int number, Path file) {
+            this.number = number;
+            this.mbox = null;
+            this.start = 0;
+            this.end = 0;
+            this.file = file;
+        }
+
+        byte[] bytes() {
+            if (null == file) {
+                byte[] bytes = new byte[end - start];
+                mbox.duplicate().position(start).get(bytes);
+                return bytes;
+            }
+            try {
+                return Files.readAllBytes(file);
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage());
+            }
+        }
+
+        void scan(Found found) {
+            byte[] bytes = bytes();
+            int body = bodyStart(bytes);
+            Map<String, String> headers = headers(bytes, body);
+            String from = headers.getOrDefault("from", "(no From)");
+            String where = "message " + (number + 1) + " from " + from;
+
+            long sent = sent(headers.get("date"));
+            if (sent == Long.MIN_VALUE) {
+                found.rejects.add(where + ": no usable Date header [" + headers.get("date") + "]");
+                return;
+            }
+
+            LineScanner in = new LineScanner(Arrays.copyOfRange(bytes, body, bytes.length));
+            int lines = 0;
+            int picks = 0;
+            int[] cars = new int[4];
+            while (in.nextLine()) {
+                ++lines;
+                in.skipWhitespace();
+                // anything else, quoted replies included, is just the rest of the mail
+                if (in.peek() != '#') {
+                    continue;
+                }
+                ++picks;
+                String raw = in.line().trim();
+                String pick = Pool.formatRawPick(in);
+                if (null == pick) {
+                    found.rejects.add(where + ": not a pick: " + raw);
+                    continue;
+                }
+                LineScanner check = new LineScanner(pick.getBytes(StandardCharsets.UTF_8));
+                check.nextLine();
+                int nameEnd;
+                try {
+                    nameEnd = Pool.Players.parseLine(check, cars);
+                } catch (IllegalArgumentException e) {
+                    found.rejects.add(where + ": " + e.getMessage());
+                    continue;
+                }
+                found.add(new Submission(check.string(0, nameEnd), pick, raw, sent, number, lines));
+            }
+            if (0 == picks) {
+                found.rejects.add(where + ": no pick lines [" + headers.getOrDefault("subject", "") + "]");
+            }
+        }
+
+        // the offset after the blank line ending the headers
+        private static int bodyStart(byte[] bytes) {
+            int line = 0;
+            while (line < bytes.length) {
+                int end = line;
+                while (end < bytes.length && bytes[end] != '\n') {
+                    ++end;
+                }
+                if (end == line || (end == line + 1 && bytes[line] == '\r')) {
+                    return Math.min(end + 1, bytes.length);
+                }
+                line = end + 1;
+            }
+            return bytes.length;
+        }
+
+        // header names lower cased, folded lines unfolded, the first of a repeated header wins
+        private static Map<String, String> headers(byte[] bytes, int body) {
+            Map<String, String> headers = new HashMap<>();
+            String name = null;
+            StringBuilder value = new StringBuilder();
+            for (String line : new String(bytes, 0, body, StandardCharsets.ISO_8859_1).split("\r?\n")) {
+                if (!line.isEmpty() && (line.charAt(0) == ' ' || line.charAt(0) == '\t')) {
+                    value.append(' ').append(line.trim());
+                    continue;
+                }
+                if (null != name) {
+                    headers.putIfAbsent(name, value.toString());
+                }
+                int colon = line.indexOf(':');
+                name = (colon > 0) ? line.substring(0, colon).trim().toLowerCase() : null;
+                value.setLength(0);
+                if (null != name) {
+                    value.append(line.substring(colon + 1).trim());
+                }
+            }
+            if (null != name) {
+                headers.putIfAbsent(name, value.toString());
+            }
+            return headers;
+        }
+
+        // epoch millis of an RFC 5322 date, or Long.MIN_VALUE
+        private static long sent(String date) {
+            if (null == date) {
+                return Long.MIN_VALUE;
+            }
+            // drop a trailing comment such as "(UTC)"
+            int comment = date.indexOf('(');
+            if (comment > 0) {
+                date = date.substring(0, comment).trim();
+            }
+            try {
+                return ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                return Long.MIN_VALUE;
+            }
+        }
+    }
+}
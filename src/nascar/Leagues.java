@@ -0,0 +1,160 @@
+package nascar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nascar.Pool.Results;
+
+// Scores a race for every league under a root directory at once. Each subdirectory is a league laid out like the
+// files directory, with its own picks, standings, snapshot, ledger and rules.properties; the race's results file
+// sits in the root. It is parsed once and the same (read only) Results handed to every league, each of which runs
+// the usual --results pipeline on its own thread, so race night takes about as long as the slowest league rather
+// than the sum of them. What a league would have printed goes to its own e-mail file, and a league that fails
+// only fails itself.
+class Leagues {
+    static final String EMAIL_SUFFIX = "-email.txt";
+
+    private final File root;
+
+    Leagues(File root) {
+        if (!root.isDirectory()) {
+            throw new IllegalArgumentException("Can't read leagues directory: " + root.getAbsolutePath());
+        }
+        this.root = root;
+    }
+
+    // every subdirectory but hidden ones, by name
+    public List<File> getLeagues() {
+        List<File> leagues = new ArrayList<>();
+        for (File f : root.listFiles()) {
+            if (f.isDirectory() && !f.getName().startsWith(".")) {
+                leagues.add(f);
+            }
+        }
+        leagues.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return leagues;
+    }
+
+    List<Outcome> run(String raceNum, String track, String nextTrack, boolean qualifyingCanceled)
+            throws InterruptedException {
+        File resultsFile = new File(root, raceNum + "-" + track + "-results.txt");
+        Results results = new Results(resultsFile.getPath());
+        if (results.size() == 0) {
+            throw new IllegalArgumentException("No results in: " + resultsFile.getAbsolutePath());
+        }
+        List<File> leagues = getLeagues();
+        if (leagues.isEmpty()) {
+            throw new IllegalArgumentException("No leagues found in: " + root.getAbsolutePath());
+        }
+
+        // a thread per league, they spend most of their time in file I/O
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(leagues.size(), r -> {
+            Thread t = new Thread(r, "league-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Callable<Outcome>> tasks = new ArrayList<>();
+            for (File league : leagues) {
+                tasks.add(() -> score(league, resultsFile, raceNum, track, nextTrack, qualifyingCanceled, results));
+            }
+            List<Outcome> outcomes = new ArrayList<>();
+            for (Future<Outcome> f : executor.invokeAll(tasks)) {
+                try {
+                    outcomes.add(f.get());
+                } catch (ExecutionException e) {
+                    // score catches everything but errors
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Outcome score(File league, File resultsFile, String raceNum, String track, String nextTrack,
+            boolean qualifyingCanceled, Results results) {
+        long start = System.nanoTime();
+        File email = new File(league, raceNum + "-" + track + EMAIL_SUFFIX);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+        Report.setOut(out);
+        String failure = null;
+        try {
+            Report.info("Calculating results for league " + league.getName() + ". Qualifying canceled="
+                    + qualifyingCanceled);
+            // the league directory keeps its own copy, so it replays with --season like any pool directory
+            Files.copy(resultsFile.toPath(), new File(league, resultsFile.getName()).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            Pool.scoreRace(league, raceNum, track, nextTrack, qualifyingCanceled, results, null, out);
+        } catch (Exception e) {
+            e.printStackTrace(out);
+            failure = (null == e.getMessage()) ? e.toString() : e.getMessage();
+            out.println("Failed to score league: " + failure);
+        } finally {
+            Report.setOut(null);
+        }
+
+        try {
+            Files.write(email.toPath(), buffer.toByteArray());
+        } catch (IOException e) {
+            failure = (null == failure) ? "Can't write " + email.getName() + ": " + e.getMessage() : failure;
+        }
+        return new Outcome(league.getName(), email, System.nanoTime() - start, failure);
+    }
+
+    static class Outcome {
+        private final String league;
+        private final File email;
+        private final long nanos;
+        private final String failure;
+
+        Outcome(String league, File email, long nanos, String failure) {
+            this.league = league;
+            this.email = email;
+            this.nanos = nanos;
+            this.failure = failure;
+        }
+
+        public String getLeague() {
+            return league;
+        }
+
+        public boolean isFailed() {
+            return null != failure;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s %6dms  %s", league, nanos / 1000000,
+                    isFailed() ? "FAILED: " + failure : email.getPath());
+        }
+    }
+
+    static List<String> lines(List<Outcome> outcomes) {
+        List<String> lines = new ArrayList<>();
+        outcomes.forEach(o -> lines.add(o.toString()));
+        long failed = outcomes.stream().filter(Outcome::isFailed).count();
+        lines.add((outcomes.size() - failed) + " of " + outcomes.size() + " leagues scored"
+                + ((failed > 0) ? ", " + failed + " failed: "
+                        + Arrays.toString(outcomes.stream().filter(Outcome::isFailed).map(Outcome::getLeague)
+                                .toArray()) : ""));
+        return lines;
+    }
+}
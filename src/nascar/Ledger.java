@@ -0,0 +1,421 @@
+package nascar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+import nascar.Pool.Player;
+import nascar.Pool.Players;
+import nascar.Pool.Standing;
+import nascar.Pool.Standings;
+
+// Append-only journal of the money. Every race is written as one group, a record per player with the amount
+// their balance moved, closed by a COMMIT record; groups are fsync'd together by flush(), so a crash loses at most
+// the groups since the last flush and never half of one. Each record is [length][crc32c][payload], and replay
+// stops at the first one that's torn or doesn't check out, then drops the tail after the last commit.
+//
+// Opening balances (the standings a ledger or a replay starts from) are groups of BALANCE records closed by an
+// OPENED record rather than a COMMIT, so an opening with nobody in it is still one, and supersede any later
+// openings. A race recorded again is replaced by a group that starts with a VOID, so recovery drops the
+// old amounts only along with the new ones. Every CHECKPOINT_EVERY groups the whole state is compacted into
+// <ledger>.ckpt, so startup only replays the journal past it.
+class Ledger {
+    static final String FILE = "ledger.bin";
+    static final int CHECKPOINT_EVERY = Integer.getInteger("nascar.checkpointRaces", 8);
+
+    private static final int CHECKPOINT_MAGIC = 0x4e534c43;
+    private static final int VERSION = 1;
+    private static final byte DEBIT = 1;
+    private static final byte DEPOSIT = 2;
+    private static final byte BALANCE = 3;
+    private static final byte COMMIT = 4;
+    private static final byte VOID = 5;
+    // the COMMIT of an opening
+    private static final byte OPENED = 6;
+    // type, race, amount, name length
+    private static final int FIXED = 1 + 4 + 4 + 2;
+
+    private final File file;
+    private final File checkpoint;
+    // race -> (player -> opening balance), and race -> (player -> amount)
+    private final TreeMap<Integer, Map<String, Integer>> openings = new TreeMap<>();
+    private final TreeMap<Integer, Map<String, Integer>> races = new TreeMap<>();
+    private final FileChannel channel;
+    private final FileLock lock;
+    private long replayed;
+    private int groups;
+    private boolean unsynced;
+
+    Ledger(File file) throws IOException {
+        this(file, false);
+    }
+
+    // an existing ledger, only to look at: nothing is created, truncated or appended
+    static Ledger read(File file) throws IOException {
+        if (!file.canRead()) {
+            throw new IllegalArgumentException("Can't read ledger file: " + file.getAbsolutePath());
+        }
+        return new Ledger(file, true);
+    }
+
+    private Ledger(File file, boolean readOnly) throws IOException {
+        this.file = file;
+        this.checkpoint = new File(file.getPath() + ".ckpt");
+        this.channel = readOnly ? FileChannel.open(file.toPath(), StandardOpenOption.READ)
+                : FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+        this.lock = channel.tryLock(0, Long.MAX_VALUE, readOnly);
+        if (null == lock) {
+            channel.close();
+            throw new IllegalStateException("Ledger is in use by another process: " + file.getAbsolutePath());
+        }
+
+        long offset = loadCheckpoint();
+        if (offset > channel.size()) {
+            Report.info("Ignoring ledger checkpoint past the end of " + file);
+            openings.clear();
+            races.clear();
+            offset = 0;
+        }
+        long end = replay(offset);
+        if (channel.size() > end && !readOnly) {
+            Report.info("Dropping " + (channel.size() - end) + " bytes of uncommitted ledger tail in " + file);
+            channel.truncate(end);
+            channel.force(true);
+        }
+        channel.position(end);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // groups replayed from the journal at startup, i.e. past the checkpoint
+    public long getReplayed() {
+        return replayed;
+    }
+
+    public boolean isEmpty() {
+        return openings.isEmpty();
+    }
+
+    public Integer getLastRace() {
+        return races.isEmpty() ? null : races.lastKey();
+    }
+
+    // balances going into the race, or null if the ledger knows nothing from before it
+    public Map<String, Integer> balances(int race) {
+        Map.Entry<Integer, Map<String, Integer>> opening = openings.floorEntry(race);
+        if (null == opening) {
+            return null;
+        }
+        Map<String, Integer> balances = new LinkedHashMap<>(opening.getValue());
+        for (Map<String, Integer> amounts : races.subMap(opening.getKey(), race).values()) {
+            amounts.forEach((name, amount) -> balances.merge(name, amount, Integer::sum));
+        }
+        return balances;
+    }
+
+    // records the standings' balances as the opening of race, unless the ledger already covers it
+    void open(int race, Standings standings) throws IOException {
+        if (null != openings.floorKey(race)) {
+            return;
+        }
+        Map<String, Integer> balances = new LinkedHashMap<>();
+        for (Standing s : standings.getTotals().values()) {
+            balances.put(s.getPlayer(), s.getBalance());
+        }
+        append(race, BALANCE, balances, false);
+        openings.put(race, balances);
+        openings.tailMap(race, false).clear();
+    }
+
+    // replaces the standings' balances going into race with the ledger's, and says whether any changed
+    boolean restore(int race, Standings standings) {
+        Map<String, Integer> balances = balances(race);
+        if (null == balances) {
+            return false;
+        }
+        boolean changed = false;
+        for (Standing s : new ArrayList<>(standings.getTotals().values())) {
+            Integer balance = balances.get(s.getPlayer());
+            if (null != balance && balance != s.getBalance()) {
+                Report.info("Restoring balance of " + s.getPlayer() + " from the ledger: "
+                        + Standing.balanceString(balance));
+                standings.getTotals().put(s.getPlayer(), new Standing(s.getPlayer(), s.getTotal(), balance));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    static int[] balances(Players players) {
+        List<Player> list = players.getPlayers();
+        int[] balances = new int[list.size()];
+        for (int i = 0; i < balances.length; ++i) {
+            balances[i] = list.get(i).getBalance();
+        }
+        return balances;
+    }
+
+    // records what applyResults moved, given the balances from before it
+    void record(int race, Players players, int[] before) throws IOException {
+        Map<String, Integer> amounts = new LinkedHashMap<>();
+        List<Player> list = players.getPlayers();
+        for (int i = 0; i < before.length; ++i) {
+            amounts.put(list.get(i).getName(), list.get(i).getBalance() - before[i]);
+        }
+        if (amounts.equals(races.get(race))) {
+            // already journaled as it is, a replay that changed nothing upstream of it
+            return;
+        }
+        boolean replacing = races.containsKey(race);
+        if (replacing) {
+            Report.info("Replacing race " + race + " in the ledger");
+        }
+        append(race, DEPOSIT, amounts, replacing);
+        races.put(race, amounts);
+    }
+
+    // makes every group so far durable, and checkpoints when enough have piled up
+    void flush() throws IOException {
+        if (!unsynced) {
+            return;
+        }
+        Metrics.Span span = Metrics.begin(Metrics.Phase.SYNC);
+        channel.force(false);
+        Metrics.end(span, groups, 0);
+        unsynced = false;
+        if (groups >= CHECKPOINT_EVERY) {
+            writeCheckpoint();
+            groups = 0;
+        }
+    }
+
+    void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            lock.release();
+            channel.close();
+        }
+    }
+
+    // one group: a VOID of the race's earlier amounts when voids, the entries (DEBIT/DEPOSIT by sign, or BALANCE)
+    // and a COMMIT, or OPENED for BALANCE
+    private void append(int race, byte type, Map<String, Integer> entries, boolean voids) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        if (voids) {
+            records.add(payload(VOID, race, 0, ""));
+        }
+        for (Map.Entry<String, Integer> e : entries.entrySet()) {
+            int amount = e.getValue();
+            byte t = (BALANCE == type) ? BALANCE : (amount < 0) ? DEBIT : DEPOSIT;
+            records.add(payload(t, race, (DEBIT == t) ? -amount : amount, e.getKey()));
+        }
+        records.add(payload((BALANCE == type) ? OPENED : COMMIT, race, entries.size(), ""));
+
+        int size = 0;
+        for (byte[] r : records) {
+            size += 8 + r.length;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        CRC32C crc = new CRC32C();
+        for (byte[] r : records) {
+            crc.reset();
+            crc.update(r);
+            buf.putInt(r.length).putInt((int) crc.getValue()).put(r);
+        }
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        Metrics.add(Metrics.Counter.BYTES_WRITTEN, size);
+        unsynced = true;
+        ++groups;
+    }
+
+    private static byte[] payload(byte type, int race, int amount, String name) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(FIXED + nameBytes.length);
+        buf.put(type).putInt(race).putInt(amount).putShort((short) nameBytes.length).put(nameBytes);
+        return buf.array();
+    }
+
+    // applies every complete group from offset on and returns where the last one ends
+    private long replay(long offset) throws IOException {
+        long size = channel.size() - offset;
+        ByteBuffer buf = ByteBuffer.allocate((int) size);
+        while (buf.hasRemaining() && channel.read(buf, offset + buf.position()) >= 0) {
+        }
+        buf.flip();
+
+        CRC32C crc = new CRC32C();
+        Map<String, Integer> group = new LinkedHashMap<>();
+        int groupRace = 0;
+        boolean opening = false;
+        // the group started with a VOID, its race's old amounts go when (and only if) it commits
+        boolean voiding = false;
+        long end = offset;
+        while (buf.remaining() >= 8) {
+            int length = buf.getInt();
+            int checksum = buf.getInt();
+            if (length < FIXED || length > buf.remaining()) {
+                break;
+            }
+            byte[] record = new byte[length];
+            buf.get(record);
+            crc.reset();
+            crc.update(record);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            ByteBuffer r = ByteBuffer.wrap(record);
+            byte type = r.get();
+            int race = r.getInt();
+            int amount = r.getInt();
+            int nameLength = r.getShort() & 0xffff;
+            if (nameLength != length - FIXED) {
+                break;
+            }
+            String name = new String(record, FIXED, nameLength, StandardCharsets.UTF_8);
+
+            if (DEBIT == type || DEPOSIT == type || BALANCE == type) {
+                if (group.isEmpty() && !voiding) {
+                    groupRace = race;
+                    opening = BALANCE == type;
+                } else if (race != groupRace || opening != (BALANCE == type)) {
+                    break;
+                }
+                group.put(name, (DEBIT == type) ? -amount : amount);
+                continue;
+            }
+            if (COMMIT == type || OPENED == type) {
+                if (((!group.isEmpty() || voiding) && race != groupRace) || amount != group.size()
+                        || (OPENED == type && (voiding || (!group.isEmpty() && !opening)))) {
+                    break;
+                }
+                // ledgers from before OPENED closed openings with a COMMIT, which the BALANCE records tell apart
+                if (opening || OPENED == type) {
+                    openings.put(race, group);
+                    openings.tailMap(race, false).clear();
+                } else {
+                    races.put(race, group);
+                }
+                group = new LinkedHashMap<>();
+                opening = false;
+                voiding = false;
+            } else if (VOID == type && group.isEmpty() && !voiding) {
+                groupRace = race;
+                voiding = true;
+                continue;
+            } else {
+                break;
+            }
+            end = offset + buf.position();
+            ++replayed;
+            ++groups;
+        }
+        return end;
+    }
+
+    // checkpoint: magic, version, journal offset, openings, races, crc32c of all of it. Returns the offset.
+    private long loadCheckpoint() throws IOException {
+        if (!checkpoint.canRead()) {
+            return 0;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(checkpoint.toPath()));
+        try {
+            CRC32C crc = new CRC32C();
+            crc.update(buf.array(), 0, buf.limit() - 4);
+            if (buf.getInt() != CHECKPOINT_MAGIC || buf.getInt() != VERSION
+                    || buf.getInt(buf.limit() - 4) != (int) crc.getValue()) {
+                throw new IllegalArgumentException();
+            }
+            long offset = buf.getLong();
+            readGroups(buf, openings);
+            readGroups(buf, races);
+            return offset;
+        } catch (RuntimeException e) {
+            Report.info("Ignoring invalid ledger checkpoint " + checkpoint);
+            openings.clear();
+            races.clear();
+            return 0;
+        }
+    }
+
+    private void writeCheckpoint() throws IOException {
+        Map<String, byte[]> encoded = new HashMap<>();
+        int size = 4 + 4 + 8 + 4 + 4 + 4;
+        for (TreeMap<Integer, Map<String, Integer>> groups : List.of(openings, races)) {
+            for (Map<String, Integer> group : groups.values()) {
+                size += 8;
+                for (String name : group.keySet()) {
+                    byte[] b = encoded.computeIfAbsent(name, n -> n.getBytes(StandardCharsets.UTF_8));
+                    size += 2 + b.length + 4;
+                }
+            }
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putInt(CHECKPOINT_MAGIC).putInt(VERSION).putLong(channel.position());
+        writeGroups(buf, openings, encoded);
+        writeGroups(buf, races, encoded);
+        CRC32C crc = new CRC32C();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+
+        File tmp = new File(checkpoint.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buf.flip();
+            while (buf.hasRemaining()) {
+                out.write(buf);
+            }
+            out.force(true);
+        }
+        Files.move(tmp.toPath(), checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeGroups(ByteBuffer buf, TreeMap<Integer, Map<String, Integer>> groups,
+            Map<String, byte[]> encoded) {
+        buf.putInt(groups.size());
+        for (Map.Entry<Integer, Map<String, Integer>> g : groups.entrySet()) {
+            buf.putInt(g.getKey()).putInt(g.getValue().size());
+            for (Map.Entry<String, Integer> e : g.getValue().entrySet()) {
+                byte[] name = encoded.get(e.getKey());
+                buf.putShort((short) name.length).put(name).putInt(e.getValue());
+            }
+        }
+    }
+
+    private static void readGroups(ByteBuffer buf, TreeMap<Integer, Map<String, Integer>> groups) {
+        int count = buf.getInt();
+        for (int i = 0; i < count; ++i) {
+            int race = buf.getInt();
+            int entries = buf.getInt();
+            Map<String, Integer> group = new LinkedHashMap<>();
+            for (int j = 0; j < entries; ++j) {
+                byte[] name = new byte[buf.getShort() & 0xffff];
+                buf.get(name);
+                group.put(new String(name, StandardCharsets.UTF_8), buf.getInt());
+            }
+            groups.put(race, group);
+        }
+    }
+}
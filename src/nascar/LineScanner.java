@@ -0,0 +1,209 @@
+package nascar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+// Single pass scanner over the raw bytes of a pool file. Lines are walked in place and numbers are read
+// straight into ints, so the parsers only allocate for the player names they keep (and for error messages).
+class LineScanner {
+    private final byte[] buf;
+    private int lineStart;
+    private int lineEnd;
+    private int next;
+    private int pos;
+
+    LineScanner(File file) throws IOException {
+        this(Files.readAllBytes(file.toPath()));
+    }
+
+    LineScanner(byte[] buf) {
+        this.buf = buf;
+    }
+
+    // advances to the next line that is not blank, accepting \n, \r\n and \r line endings
+    public boolean nextLine() {
+        while (next < buf.length) {
+            int i = next;
+            while (i < buf.length && buf[i] != '\n' && buf[i] != '\r') {
+                ++i;
+            }
+            lineStart = next;
+            lineEnd = i;
+            pos = lineStart;
+            if (i < buf.length) {
+                if (buf[i] == '\r' && i + 1 < buf.length && buf[i + 1] == '\n') {
+                    ++i;
+                }
+                ++i;
+            }
+            next = i;
+
+            for (int j = lineStart; j < lineEnd; ++j) {
+                if ((buf[j] & 0xff) > ' ') {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public int pos() {
+        return pos;
+    }
+
+    public void pos(int pos) {
+        this.pos = pos;
+    }
+
+    // bytes scanned, the whole file
+    public int length() {
+        return buf.length;
+    }
+
+    public int lineEnd() {
+        return lineEnd;
+    }
+
+    public int peek() {
+        return pos < lineEnd ? buf[pos] : -1;
+    }
+
+    public int charAt(int i) {
+        return i < lineEnd ? buf[i] : -1;
+    }
+
+    public boolean isDigit() {
+        return pos < lineEnd && isDigit(buf[pos]);
+    }
+
+    public boolean isWhitespace() {
+        return pos < lineEnd && isWhitespace(buf[pos]);
+    }
+
+    public void skipWhitespace() {
+        while (pos < lineEnd && isWhitespace(buf[pos])) {
+            ++pos;
+        }
+    }
+
+    public void skipDigits() {
+        while (pos < lineEnd && isDigit(buf[pos])) {
+            ++pos;
+        }
+    }
+
+    // [a-zA-Z ]*
+    public void skipName() {
+        while (pos < lineEnd && isNameChar(buf[pos])) {
+            ++pos;
+        }
+    }
+
+    // [.\s]*
+    public void skipDotsAndWhitespace() {
+        while (pos < lineEnd && (buf[pos] == '.' || isWhitespace(buf[pos]))) {
+            ++pos;
+        }
+    }
+
+    public boolean skipToDigit() {
+        while (pos < lineEnd && !isDigit(buf[pos])) {
+            ++pos;
+        }
+        return pos < lineEnd;
+    }
+
+    // finds the first run of n whitespace separated numbers and leaves the scanner at its start
+    public boolean skipToNumbers(int n) {
+        while (skipToDigit()) {
+            int start = pos;
+            int i = start;
+            int found = 0;
+            while (true) {
+                int digits = i;
+                while (i < lineEnd && isDigit(buf[i])) {
+                    ++i;
+                }
+                if (i == digits) {
+                    break;
+                }
+                if (++found == n) {
+                    pos = start;
+                    return true;
+                }
+                int spaces = i;
+                while (i < lineEnd && isWhitespace(buf[i])) {
+                    ++i;
+                }
+                if (i == spaces) {
+                    break;
+                }
+            }
+            skipDigits();
+        }
+        return false;
+    }
+
+    public int readInt() {
+        int start = pos;
+        long value = 0;
+        while (pos < lineEnd && isDigit(buf[pos])) {
+            value = value * 10 + (buf[pos++] - '0');
+            if (value > Integer.MAX_VALUE) {
+                skipDigits();
+                throw new NumberFormatException("For input string: \"" + string(start, pos) + "\"");
+            }
+        }
+        if (start == pos) {
+            throw new NumberFormatException("For input string: \"\"");
+        }
+        return (int) value;
+    }
+
+    public boolean matches(int at, String literal) {
+        if (at < lineStart || at + literal.length() > lineEnd) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); ++i) {
+            if (buf[at + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean matchesIgnoreCase(int at, String literal) {
+        if (at < lineStart || at + literal.length() > lineEnd) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); ++i) {
+            if (Character.toLowerCase(buf[at + i]) != Character.toLowerCase(literal.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String string(int from, int to) {
+        return new String(buf, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    public String line() {
+        return string(lineStart, lineEnd);
+    }
+
+    static boolean isDigit(int b) {
+        return b >= '0' && b <= '9';
+    }
+
+    // same set as the regex \s
+    static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+    }
+
+    static boolean isNameChar(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == ' ';
+    }
+}
@@ -0,0 +1,174 @@
+package nascar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import nascar.Pool.Player;
+import nascar.Pool.Players;
+import nascar.Pool.Results;
+import nascar.Pool.Standings;
+
+// Live leaderboard while a race is running. The results file is watched as lines are appended or rewritten; on
+// every change only the cars whose score moved are re-scored, through a car -> players index, and only the
+// players holding those cars get new ranking keys. The results file itself is at most a field's worth of
+// lines, so it's simply re-read; the pool is the part that has to scale.
+class LiveRace {
+    static final int LEADERS = 10;
+
+    private final File resultsFile;
+    private final boolean qualifyingCanceled;
+    private final Rules rules;
+    private final List<Player> players;
+    private final int[][] pickers = new int[Results.CARS][];
+    private final int[] scores = new int[Results.CARS];
+    private final int[] points;
+    private final int[] totals;
+    private final long[] keys;
+    private int cars;
+
+    LiveRace(File resultsFile, Players players, Standings standings, boolean qualifyingCanceled, Rules rules) {
+        this.resultsFile = resultsFile;
+        this.qualifyingCanceled = qualifyingCanceled;
+        this.rules = rules;
+        this.players = players.getPlayers();
+        int n = this.players.size();
+        this.points = new int[n];
+        this.totals = new int[n];
+        this.keys = new long[n];
+
+        int[] counts = new int[Results.CARS];
+        for (int i = 0; i < n; ++i) {
+            Player p = this.players.get(i);
+            for (int c : p.getPicks()) {
+                ++counts[c];
+            }
+            if (null != standings && standings.getTotals().containsKey(p.getName())) {
+                totals[i] = standings.getTotals().get(p.getName()).getTotal();
+            }
+            keys[i] = Ranking.key(0, totals[i]);
+        }
+        for (int c = 0; c < Results.CARS; ++c) {
+            pickers[c] = new int[counts[c]];
+            counts[c] = 0;
+        }
+        for (int i = 0; i < n; ++i) {
+            for (int c : this.players.get(i).getPicks()) {
+                pickers[c][counts[c]++] = i;
+            }
+        }
+    }
+
+    // applies the score change of every car that moved and returns how many did
+    int update(Results results) {
+        int[] next = rules.scores(results, qualifyingCanceled);
+        int changed = 0;
+        for (int c = 0; c < Results.CARS; ++c) {
+            int delta = next[c] - scores[c];
+            if (0 == delta) {
+                continue;
+            }
+            ++changed;
+            scores[c] = next[c];
+            for (int i : pickers[c]) {
+                points[i] += delta;
+                keys[i] = Ranking.key(points[i], totals[i]);
+            }
+        }
+        cars = results.size();
+        return changed;
+    }
+
+    List<String> leaderboard() {
+        List<String> lines = new ArrayList<>(LEADERS + 1);
+        lines.add("\nLeaderboard with " + cars + " cars in:");
+        int[] top = Ranking.top(keys, LEADERS);
+        for (int i = 0; i < top.length; ++i) {
+            lines.add(String.format("#%d, %s with %d", i + 1, players.get(top[i]).getName(), points[top[i]]));
+        }
+        return lines;
+    }
+
+    // watches until the results file has been idle for idleMillis, or forever if idleMillis is 0
+    void watch(long idleMillis) throws IOException, InterruptedException {
+        File dir = resultsFile.getAbsoluteFile().getParentFile();
+        long lastModified = -1;
+        long lastLength = -1;
+        long lastChange = System.currentTimeMillis();
+
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            dir.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            while (true) {
+                // poll as well, some file systems are slow to (or never) deliver events
+                WatchKey key = watcher.poll(500, TimeUnit.MILLISECONDS);
+                if (null != key) {
+                    key.pollEvents();
+                    key.reset();
+                }
+
+                long modified = resultsFile.lastModified();
+                long length = resultsFile.length();
+                if (modified != lastModified || length != lastLength) {
+                    lastModified = modified;
+                    lastLength = length;
+                    lastChange = System.currentTimeMillis();
+                    refresh();
+                } else if (idleMillis > 0 && System.currentTimeMillis() - lastChange > idleMillis) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void refresh() {
+        if (!resultsFile.canRead()) {
+            return;
+        }
+        Results results;
+        try {
+            results = new Results(resultsFile.getPath());
+        } catch (IllegalArgumentException e) {
+            // most likely a line caught half written, the next change will complete it
+            Report.info("Skipping results update: " + e.getMessage());
+            return;
+        }
+        if (update(results) > 0) {
+            leaderboard().forEach(l -> System.out.println(l));
+        }
+    }
+
+    // Stand-in for a live timing feed: copies a finished results file into the watched one a line at a time. It
+    // only starts on an empty (or missing) watched file, so a demo never wipes out a race's real results.
+    static Thread feed(File source, File target, long millisPerLine) throws IOException {
+        if (target.length() > 0) {
+            throw new IllegalArgumentException("Won't feed results over a non-empty results file: "
+                    + target.getAbsolutePath());
+        }
+        List<String> lines = Files.readAllLines(source.toPath());
+        Files.write(target.toPath(), Collections.emptyList());
+        Thread feed = new Thread(() -> {
+            try {
+                for (String line : lines) {
+                    Thread.sleep(millisPerLine);
+                    Files.write(target.toPath(), Collections.singletonList(line), StandardOpenOption.APPEND);
+                }
+            } catch (IOException e) {
+                System.out.println("Failed to feed results: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "results-feed");
+        feed.setDaemon(true);
+        feed.start();
+        return feed;
+    }
+}
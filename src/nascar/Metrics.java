@@ -0,0 +1,223 @@
+package nascar;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+
+import javax.management.ObjectName;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Per-phase timings and run counters. Every phase of a run (parsing each kind of file, applying standings and
+// results, sorting, writing and syncing files) is timed with two nanoTime calls into a few atomic counters, and
+// emitted as a JFR event when a recording has it enabled, so it can stay on in production. The daemon publishes
+// the totals as the nascar:type=Metrics MXBean, and with --metrics a summary is printed at the end of the run.
+final class Metrics implements MetricsMXBean {
+    enum Phase {
+        PARSE_RESULTS("parse results"),
+        PARSE_PICKS("parse picks"),
+        PARSE_STANDINGS("parse standings"),
+        APPLY_STANDINGS("apply standings"),
+        APPLY_RESULTS("apply results"),
+        SORT("sort"),
+        WRITE("write"),
+        SYNC("sync");
+
+        final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    enum Counter {
+        ENTRANTS("entrants"),
+        PICKS("picks"),
+        TIES("ties"),
+        MISSING_CARS("missing cars"),
+        BYTES_READ("bytes read"),
+        BYTES_WRITTEN("bytes written");
+
+        final String label;
+
+        Counter(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final int PHASES = Phase.values().length;
+    private static final Metrics INSTANCE = new Metrics();
+    private static boolean summary;
+    private static boolean published;
+
+    private final AtomicLongArray counts = new AtomicLongArray(PHASES);
+    private final AtomicLongArray totals = new AtomicLongArray(PHASES);
+    private final AtomicLongArray maxima = new AtomicLongArray(PHASES);
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+
+    private Metrics() {
+    }
+
+    static Metrics get() {
+        return INSTANCE;
+    }
+
+    // registers the MXBean; only worth the JMX startup for the daemon and --metrics runs
+    static synchronized void publish() {
+        if (published) {
+            return;
+        }
+        published = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName("nascar:type=Metrics"));
+        } catch (Exception e) {
+            // management is an extra, a run never fails for it
+            Report.info("Metrics not published over JMX: " + e.getMessage());
+        }
+    }
+
+    // --metrics: print the summary when the run ends
+    static void setSummary(boolean summary) {
+        Metrics.summary = summary;
+    }
+
+    static boolean isSummary() {
+        return summary;
+    }
+
+    // A phase in progress; end it once with what it handled.
+    static final class Span {
+        private final Phase phase;
+        private final long start = System.nanoTime();
+        private final PhaseEvent event;
+
+        private Span(Phase phase) {
+            this.phase = phase;
+            this.event = new PhaseEvent();
+            event.begin();
+        }
+    }
+
+    static Span begin(Phase phase) {
+        return new Span(phase);
+    }
+
+    // items is whatever the phase counts (lines, players, files), bytes what it read or wrote
+    static void end(Span span, long items, long bytes) {
+        long nanos = System.nanoTime() - span.start;
+        int i = span.phase.ordinal();
+        INSTANCE.counts.incrementAndGet(i);
+        INSTANCE.totals.addAndGet(i, nanos);
+        INSTANCE.maxima.accumulateAndGet(i, nanos, Math::max);
+        if (i <= Phase.PARSE_STANDINGS.ordinal()) {
+            add(Counter.BYTES_READ, bytes);
+        } else if (Phase.WRITE == span.phase) {
+            add(Counter.BYTES_WRITTEN, bytes);
+        }
+
+        PhaseEvent event = span.event;
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = span.phase.label;
+            event.items = items;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    static void add(Counter counter, long amount) {
+        INSTANCE.counters.addAndGet(counter.ordinal(), amount);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseCounts() {
+        return byPhase(i -> counts.get(i));
+    }
+
+    @Override
+    public Map<String, Long> getPhaseTotalMicros() {
+        return byPhase(i -> totals.get(i) / 1000);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMaxMicros() {
+        return byPhase(i -> maxima.get(i) / 1000);
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Counter c : Counter.values()) {
+            map.put(c.label, counters.get(c.ordinal()));
+        }
+        return map;
+    }
+
+    private Map<String, Long> byPhase(ToLongFunction<Integer> value) {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Phase p : Phase.values()) {
+            map.put(p.label, value.applyAsLong(p.ordinal()));
+        }
+        return map;
+    }
+
+    @Override
+    public String getSummary() {
+        return String.join("\n", lines());
+    }
+
+    List<String> lines() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-16s %7s %11s %11s", "Phase", "count", "total ms", "max ms"));
+        for (Phase p : Phase.values()) {
+            int i = p.ordinal();
+            if (counts.get(i) > 0) {
+                lines.add(String.format("%-16s %7d %11.3f %11.3f", p.label, counts.get(i), totals.get(i) / 1e6,
+                        maxima.get(i) / 1e6));
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Counter c : Counter.values()) {
+            sb.append(sb.length() == 0 ? "" : ", ").append(c.label).append(' ').append(counters.get(c.ordinal()));
+        }
+        lines.add(sb.toString());
+        return lines;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < PHASES; ++i) {
+            counts.set(i, 0);
+            totals.set(i, 0);
+            maxima.set(i, 0);
+        }
+        for (int i = 0; i < counters.length(); ++i) {
+            counters.set(i, 0);
+        }
+    }
+
+    @Name("nascar.Phase")
+    @Label("Pool Phase")
+    @Category("NASCAR Pool")
+    @Description("One phase of a pool run: parsing a file, scoring, sorting, writing")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Items")
+        long items;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+}
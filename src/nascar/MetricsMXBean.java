@@ -0,0 +1,18 @@
+package nascar;
+
+import java.util.Map;
+
+// What Metrics shows over JMX, as nascar:type=Metrics. JMX only introspects public interfaces.
+public interface MetricsMXBean {
+    Map<String, Long> getPhaseCounts();
+
+    Map<String, Long> getPhaseTotalMicros();
+
+    Map<String, Long> getPhaseMaxMicros();
+
+    Map<String, Long> getCounters();
+
+    String getSummary();
+
+    void reset();
+}
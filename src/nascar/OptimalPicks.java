@@ -0,0 +1,226 @@
+package nascar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import nascar.Pool.Results;
+
+// Sweeps every 4-car combination of the field against a history of races and ranks them by expected weekly
+// points, then by the lowest spread. Each car's weekly scores (points plus bonuses, as the season's rules
+// score them) are laid out as a primitive vector over the races, and partial sums are built one car at a time,
+// so the innermost loop is a straight add and square over ints. Sweeps are parallel over the first car.
+class OptimalPicks {
+
+    private final List<Results> results;
+    private final int[] field;
+    private final int[][] vectors;
+    private final int races;
+
+    OptimalPicks(List<Results> results, List<int[]> scores) {
+        if (results.isEmpty()) {
+            throw new IllegalArgumentException("No completed races to search");
+        }
+        this.results = results;
+        this.races = scores.size();
+
+        // the field is every car that qualified for at least one race
+        int count = 0;
+        int[] cars = new int[Results.CARS];
+        for (int c = 0; c < Results.CARS; ++c) {
+            for (Results r : results) {
+                if (r.isQualified(c)) {
+                    cars[count++] = c;
+                    break;
+                }
+            }
+        }
+        if (count < 4) {
+            throw new IllegalArgumentException("Need at least 4 cars in the field, found " + count);
+        }
+        this.field = Arrays.copyOf(cars, count);
+        this.vectors = new int[count][races];
+        for (int i = 0; i < count; ++i) {
+            for (int r = 0; r < races; ++r) {
+                vectors[i][r] = scores.get(r)[field[i]];
+            }
+        }
+    }
+
+    int getFieldSize() {
+        return field.length;
+    }
+
+    int getRaces() {
+        return races;
+    }
+
+    // the best k combinations, best first
+    Pick[] search(int k) {
+        Candidates best = ForkJoinPool.commonPool().invoke(new Sweep(0, field.length - 3, k));
+        Pick[] picks = new Pick[best.size];
+        for (int i = 0; i < best.size; ++i) {
+            picks[i] = new Pick(best.combos[i], best.keys[i]);
+        }
+        return picks;
+    }
+
+    List<String> lines(Pick[] picks) {
+        List<String> lines = new ArrayList<>(picks.length);
+        for (int i = 0; i < picks.length; ++i) {
+            Pick p = picks[i];
+            lines.add(String.format("#%d, %2d %2d %2d %2d expects %.1f (sd %.1f) takes..........%d", i + 1,
+                    p.cars[0], p.cars[1], p.cars[2], p.cars[3], p.getMean(), p.getStdDev(), p.getTakes()));
+        }
+        return lines;
+    }
+
+    // total points desc, then sum of squares asc (for an equal mean, the lower variance)
+    private static long key(int sum, long squares) {
+        return ((long) -sum << 32) | Math.min(squares, 0xffffffffL);
+    }
+
+    // field indices a < b < c < d, packed a byte each
+    private static int combo(int a, int b, int c, int d) {
+        return (a << 24) | (b << 16) | (c << 8) | d;
+    }
+
+    class Pick {
+        final int[] cars = new int[4];
+        final int sum;
+        final long squares;
+
+        Pick(int combo, long key) {
+            for (int i = 0; i < 4; ++i) {
+                cars[i] = field[(combo >>> (24 - 8 * i)) & 0xff];
+            }
+            this.sum = -(int) (key >> 32);
+            this.squares = key & 0xffffffffL;
+        }
+
+        double getMean() {
+            return (double) sum / races;
+        }
+
+        double getStdDev() {
+            double mean = getMean();
+            return Math.sqrt(Math.max(0, (double) squares / races - mean * mean));
+        }
+
+        // the car that was most often the highest of the four, the one getHighestCar would have taken
+        int getTakes() {
+            int[] counts = new int[4];
+            for (Results r : results) {
+                int highest = r.getHighestCar(cars);
+                for (int i = 0; i < 4; ++i) {
+                    if (cars[i] == highest) {
+                        ++counts[i];
+                        break;
+                    }
+                }
+            }
+            int best = 0;
+            for (int i = 1; i < 4; ++i) {
+                if (counts[i] > counts[best]) {
+                    best = i;
+                }
+            }
+            return cars[best];
+        }
+    }
+
+    // the k smallest keys seen so far, kept sorted with ties in the order they were offered
+    private static class Candidates {
+        final long[] keys;
+        final int[] combos;
+        int size;
+
+        Candidates(int k) {
+            this.keys = new long[k];
+            this.combos = new int[k];
+        }
+
+        void offer(long key, int combo) {
+            if (0 == keys.length) {
+                return;
+            }
+            if (size == keys.length && key >= keys[size - 1]) {
+                return;
+            }
+            int j = (size < keys.length) ? size++ : size - 1;
+            while (j > 0 && key < keys[j - 1]) {
+                keys[j] = keys[j - 1];
+                combos[j] = combos[j - 1];
+                --j;
+            }
+            keys[j] = key;
+            combos[j] = combo;
+        }
+
+        // all of other's candidates come after ours in sweep order
+        void addAll(Candidates other) {
+            for (int i = 0; i < other.size; ++i) {
+                offer(other.keys[i], other.combos[i]);
+            }
+        }
+    }
+
+    private class Sweep extends RecursiveTask<Candidates> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int k;
+
+        Sweep(int from, int to, int k) {
+            this.from = from;
+            this.to = to;
+            this.k = k;
+        }
+
+        @Override
+        protected Candidates compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                Sweep right = new Sweep(mid, to, k);
+                right.fork();
+                Candidates best = new Sweep(from, mid, k).compute();
+                best.addAll(right.join());
+                return best;
+            }
+
+            Candidates best = new Candidates(k);
+            int n = field.length;
+            int a = from;
+            int[] va = vectors[a];
+            int[] ab = new int[races];
+            int[] abc = new int[races];
+            for (int b = a + 1; b < n - 2; ++b) {
+                int[] vb = vectors[b];
+                for (int r = 0; r < races; ++r) {
+                    ab[r] = va[r] + vb[r];
+                }
+                for (int c = b + 1; c < n - 1; ++c) {
+                    int[] vc = vectors[c];
+                    for (int r = 0; r < races; ++r) {
+                        abc[r] = ab[r] + vc[r];
+                    }
+                    for (int d = c + 1; d < n; ++d) {
+                        int[] vd = vectors[d];
+                        int sum = 0;
+                        long squares = 0;
+                        for (int r = 0; r < races; ++r) {
+                            int v = abc[r] + vd[r];
+                            sum += v;
+                            squares += v * v;
+                        }
+                        best.offer(key(sum, squares), combo(a, b, c, d));
+                    }
+                }
+            }
+            return best;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package nascar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import nascar.Pool.Players;
+import nascar.Pool.Results;
+import nascar.Pool.Standings;
+
+// LRU cache of parsed pool files. A file whose mtime and size haven't moved is a hit without being read; one that
+// has been touched is read and hashed, and only re-parsed if its content actually changed. Every parse gets a new
+// version number, which is what the season's races compare to decide what needs recomputing. An mtime within the
+// filesystem's granularity of when the file was last read doesn't prove anything, an edit in the same tick (a
+// penalty changing one digit, say) keeps both it and the size, so such a file is hashed until it has aged past it.
+class ParseCache {
+    static final int CAPACITY = Integer.getInteger("nascar.parseCacheSize", 256);
+    // coarsest mtime resolution to allow for, FAT's 2 seconds
+    static final long GRANULARITY = 2000;
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final Map<String, Entry> entries;
+    private int hits;
+    private int misses;
+
+    ParseCache() {
+        this(CAPACITY);
+    }
+
+    ParseCache(int capacity) {
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    static class Entry {
+        final long version;
+        final Object value;
+        final byte[] digest;
+        long modified;
+        long size;
+        // when the content was last read
+        long checked;
+
+        Entry(long version, Object value, byte[] digest, long modified, long size, long checked) {
+            this.version = version;
+            this.value = value;
+            this.digest = digest;
+            this.modified = modified;
+            this.size = size;
+            this.checked = checked;
+        }
+    }
+
+    Entry results(File file) {
+        return get(file, Results::new);
+    }
+
+    Entry players(File file) {
+        return get(file, Players::new);
+    }
+
+    Entry standings(File file) {
+        return get(file, Standings::new);
+    }
+
+    // parse versions and the season's own race versions come from the same sequence, so they never collide
+    static long nextVersion() {
+        return VERSIONS.incrementAndGet();
+    }
+
+    public int getHits() {
+        return hits;
+    }
+
+    public int getMisses() {
+        return misses;
+    }
+
+    private synchronized Entry get(File file, BiFunction<File, byte[], Object> parser) {
+        String key = file.getAbsolutePath();
+        Entry entry = entries.get(key);
+        long modified = file.lastModified();
+        long size = file.length();
+        if (null != entry && entry.modified == modified && entry.size == size
+                && modified + GRANULARITY < entry.checked) {
+            ++hits;
+            return entry;
+        }
+
+        if (!file.canRead()) {
+            entries.remove(key);
+            // let the parser report it as it always has
+            parser.apply(file, null);
+        }
+
+        long checked = System.currentTimeMillis();
+        byte[] content;
+        try {
+            content = Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+        byte[] digest = digest(content);
+        if (null != entry && Arrays.equals(entry.digest, digest)) {
+            // touched, not changed
+            entry.modified = modified;
+            entry.size = size;
+            entry.checked = checked;
+            ++hits;
+            return entry;
+        }
+
+        ++misses;
+        entry = new Entry(nextVersion(), parser.apply(file, content), digest, modified, size, checked);
+        entries.put(key, entry);
+        return entry;
+    }
+
+    private static byte[] digest(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package nascar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import nascar.Pool.Player;
+import nascar.Pool.Players;
+import nascar.Pool.Results;
+
+// Takes a race's picks as they come in during the week, instead of as a finished raw picks file. Each player has
+// one slot, an AtomicReference to their latest immutable Submission, and an edit is a compare-and-set of a new
+// version into it: submitters never lock, and two of them only retry when they edit the same player at the same
+// instant. The slot is created once per player, the only time the map itself is written. Cars are checked against
+// the field when they arrive.
+//
+// At the deadline freeze() closes the window and takes the picks as they stand: every submitter counts itself in
+// and out of one of a set of striped counters (a cache line each, so a burst doesn't bounce one line between
+// cores) and checks the window is still open once counted in, so when freeze has closed it and seen every stripe
+// at zero no submission can still land. What it hands on is immutable, and scores without going through a file.
+class PickWindow {
+    static final String FIELD_SUFFIX = "-field.txt";
+    // expected version for a submission that doesn't care what it replaces
+    static final long ANY = -1;
+    private static final int STRIPES = 64;
+    // longs from one stripe to the next, 128 bytes
+    private static final int PAD = 16;
+
+    private final String raceNum;
+    private final String track;
+    private final BitSet field;
+    private final ConcurrentHashMap<String, AtomicReference<Submission>> picks = new ConcurrentHashMap<>(1 << 10);
+    private final AtomicLongArray inFlight = new AtomicLongArray(STRIPES * PAD);
+    private volatile boolean closed;
+    private volatile Frozen frozen;
+
+    // field null takes any car number
+    PickWindow(String raceNum, String track, BitSet field) {
+        this.raceNum = raceNum;
+        this.track = track;
+        this.field = field;
+    }
+
+    // with the field from <race>-<track>-field.txt, car numbers in any layout, when there is one
+    static PickWindow open(File dir, String raceNum, String track) {
+        File fieldFile = new File(dir, raceNum + "-" + track + FIELD_SUFFIX);
+        if (!fieldFile.exists()) {
+            return new PickWindow(raceNum, track, null);
+        }
+        BitSet field = new BitSet(Results.CARS);
+        try {
+            LineScanner in = new LineScanner(fieldFile);
+            while (in.nextLine()) {
+                while (in.skipToDigit()) {
+                    int car = in.readInt();
+                    if (car >= Results.CARS) {
+                        throw new IllegalArgumentException("Invalid car number [" + car + "]: " + in.line());
+                    }
+                    field.set(car);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+        if (field.cardinality() < 4) {
+            throw new IllegalArgumentException("Field of fewer than 4 cars in: " + fieldFile.getAbsolutePath());
+        }
+        return new PickWindow(raceNum, track, field);
+    }
+
+    public String getRaceNum() {
+        return raceNum;
+    }
+
+    public String getTrack() {
+        return track;
+    }
+
+    // cars in the field, 0 when any car is taken
+    public int getFieldSize() {
+        return (null == field) ? 0 : field.cardinality();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // players with picks in so far
+    public int size() {
+        return picks.size();
+    }
+
+    public Submission get(String player) {
+        AtomicReference<Submission> slot = picks.get(player);
+        return (null == slot) ? null : slot.get();
+    }
+
+    Submission submit(String player, int[] cars) {
+        return submit(player, cars, ANY);
+    }
+
+    // A player's picks, replacing the version expected (0 for none yet) unless ANY. Invalid picks are an
+    // IllegalArgumentException, a closed window or a stale expected version an IllegalStateException.
+    Submission submit(String player, int[] cars, long expected) {
+        validate(player, cars);
+        int[] copy = cars.clone();
+
+        int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1)) * PAD;
+        inFlight.incrementAndGet(stripe);
+        try {
+            if (closed) {
+                throw new IllegalStateException("Picks for " + raceNum + "-" + track + " are closed");
+            }
+            AtomicReference<Submission> slot = picks.get(player);
+            if (null == slot) {
+                slot = picks.computeIfAbsent(player, p -> new AtomicReference<>());
+            }
+            while (true) {
+                Submission current = slot.get();
+                long version = (null == current) ? 0 : current.version;
+                if (ANY != expected && expected != version) {
+                    throw new IllegalStateException("Picks for " + player + " are at version " + version
+                            + ", not " + expected);
+                }
+                Submission next = new Submission(player, copy, version + 1,
+                        (null == current) ? System.nanoTime() : current.first);
+                if (slot.compareAndSet(current, next)) {
+                    return next;
+                }
+            }
+        } finally {
+            inFlight.decrementAndGet(stripe);
+        }
+    }
+
+    private void validate(String player, int[] cars) {
+        if (player.isEmpty()) {
+            throw new IllegalArgumentException("No player name");
+        }
+        for (int i = 0; i < player.length(); ++i) {
+            char c = player.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z')) {
+                throw new IllegalArgumentException("Player names are letters only: " + player);
+            }
+        }
+        if (cars.length != 4) {
+            throw new IllegalArgumentException("Need 4 cars, not " + cars.length);
+        }
+        for (int i = 0; i < 4; ++i) {
+            int car = cars[i];
+            if (car < 0 || car >= Results.CARS || (null != field && !field.get(car))) {
+                throw new IllegalArgumentException("Car " + car + " isn't in the field for " + raceNum + "-" + track);
+            }
+            for (int j = 0; j < i; ++j) {
+                if (cars[j] == car) {
+                    throw new IllegalArgumentException("Car " + car + " picked twice");
+                }
+            }
+        }
+    }
+
+    // Closes the window and returns the picks as they stand, the same snapshot on every call.
+    synchronized Frozen freeze() {
+        if (null != frozen) {
+            return frozen;
+        }
+        closed = true;
+        while (inFlight() > 0) {
+            Thread.onSpinWait();
+        }
+        List<Submission> submissions = new ArrayList<>(picks.size());
+        for (AtomicReference<Submission> slot : picks.values()) {
+            submissions.add(slot.get());
+        }
+        frozen = new Frozen(raceNum, track, submissions);
+        return frozen;
+    }
+
+    private long inFlight() {
+        long n = 0;
+        for (int i = 0; i < STRIPES; ++i) {
+            n += inFlight.get(i * PAD);
+        }
+        return n;
+    }
+
+    // One version of a player's picks.
+    static final class Submission {
+        private final String player;
+        private final int[] cars;
+        private final long version;
+        // when the player first submitted, which orders the picks as a raw picks file would
+        private final long first;
+
+        private Submission(String player, int[] cars, long version, long first) {
+            this.player = player;
+            this.cars = cars;
+            this.version = version;
+            this.first = first;
+        }
+
+        public String getPlayer() {
+            return player;
+        }
+
+        public int[] getCars() {
+            return cars.clone();
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        // the picks file line, as --picks formats it
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(40).append(player);
+            while (sb.length() < 20) {
+                sb.append('.');
+            }
+            for (int i = 0; i < 4; ++i) {
+                sb.append((i > 0) ? ", " : "").append((cars[i] < 10) ? " " : "").append(cars[i]);
+            }
+            return sb.toString();
+        }
+    }
+
+    // The picks at the deadline, in the order players first submitted.
+    static final class Frozen {
+        private final String raceNum;
+        private final String track;
+        private final List<Submission> submissions;
+
+        private Frozen(String raceNum, String track, List<Submission> submissions) {
+            this.raceNum = raceNum;
+            this.track = track;
+            Submission[] sorted = submissions.toArray(new Submission[submissions.size()]);
+            Arrays.sort(sorted, Comparator.comparingLong((Submission s) -> s.first).thenComparing(s -> s.player));
+            this.submissions = Collections.unmodifiableList(Arrays.asList(sorted));
+        }
+
+        public boolean isFor(String raceNum, String track) {
+            return this.raceNum.equals(raceNum) && this.track.equals(track);
+        }
+
+        public List<Submission> getSubmissions() {
+            return submissions;
+        }
+
+        // fresh players to score, every call
+        Players players(File picksFile) {
+            List<Player> players = new ArrayList<>(submissions.size());
+            for (Submission s : submissions) {
+                players.add(new Player(s.player, s.cars[0], s.cars[1], s.cars[2], s.cars[3]));
+            }
+            return new Players(picksFile, players);
+        }
+
+        // the picks file, kept so --season replays the race like any other
+        void write(File picksFile) throws IOException {
+            List<String> lines = new ArrayList<>(submissions.size());
+            submissions.forEach(s -> lines.add(s.toString()));
+            Pool.writeLines(picksFile, lines);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package nascar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import nascar.Pool.Players;
+import nascar.Pool.Results;
+import nascar.Pool.Standings;
+
+// Off-heap player table for very large pools. Instead of a Player object per entrant, picks, points, totals and
+// balances live in direct buffer columns indexed by player, and names in one deduplicated byte dictionary with an
+// open addressing index, so a player is interned straight from the scanned line without a String. A player's
+// index is the order they were first seen, which is also the order Standings keeps them in, and each race's
+// entrants are kept in picks file order; so scoring, ties and the standings come out exactly as with Players.
+// Per-pick audit output isn't produced for a store.
+class PlayerStore {
+    private static final int INITIAL = 1024;
+
+    private final Column picks = new Column(16 * INITIAL);
+    private final Column points = new Column(4 * INITIAL);
+    private final Column totals = new Column(4 * INITIAL);
+    private final Column balances = new Column(4 * INITIAL);
+    private final Column raced = new Column(4 * INITIAL);
+    private final Column nameOffsets = new Column(4 * (INITIAL + 1));
+    private final Column names = new Column(16 * INITIAL);
+    private final Column entrants = new Column(4 * INITIAL);
+    private Column index = new Column(4 * 2 * INITIAL);
+    private int indexMask = 2 * INITIAL - 1;
+    private int size;
+    private int entrantCount;
+    private int race;
+
+    public int size() {
+        return size;
+    }
+
+    public int getEntrants() {
+        return entrantCount;
+    }
+
+    public String getName(int player) {
+        int from = nameOffsets.getInt(player);
+        byte[] bytes = new byte[nameOffsets.getInt(player + 1) - from];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = names.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int[] getPicks(int player) {
+        return new int[] { picks.getInt(4 * player), picks.getInt(4 * player + 1), picks.getInt(4 * player + 2),
+                picks.getInt(4 * player + 3) };
+    }
+
+    public int getPoints(int player) {
+        return points.getInt(player);
+    }
+
+    public int getTotal(int player) {
+        return totals.getInt(player);
+    }
+
+    public int getBalance(int player) {
+        return balances.getInt(player);
+    }
+
+    // same format and rules as Standings
+    void loadStandings(File file) throws IOException {
+        if (!file.canRead()) {
+            throw new IllegalArgumentException("Can't read standings file: " + file.getAbsolutePath());
+        }
+        LineScanner in = new LineScanner(file);
+        int[] totalAndBalance = new int[2];
+        while (in.nextLine()) {
+            int nameStart = in.pos();
+            int nameEnd = Standings.parseLine(in, totalAndBalance);
+            // trimmed, as Standings.process trims them
+            while (nameStart < nameEnd && LineScanner.isWhitespace(in.charAt(nameStart))) {
+                ++nameStart;
+            }
+            while (nameEnd > nameStart && LineScanner.isWhitespace(in.charAt(nameEnd - 1))) {
+                --nameEnd;
+            }
+            int player = intern(in, nameStart, nameEnd);
+            totals.putInt(player, totalAndBalance[0]);
+            balances.putInt(player, totalAndBalance[1]);
+        }
+    }
+
+    // same format and rules as Players; the entrants of the next race, players new to the pool start at 0
+    void loadPicks(File file) throws IOException {
+        if (!file.canRead()) {
+            throw new IllegalArgumentException("Can't read picks file: " + file.getAbsolutePath());
+        }
+        LineScanner in = new LineScanner(file);
+        int[] cars = new int[4];
+        entrantCount = 0;
+        ++race;
+        while (in.nextLine()) {
+            in.skipWhitespace();
+            int nameStart = in.pos();
+            int nameEnd = Players.parseLine(in, cars);
+            // the name span takes in the spaces before the dots, Player trims them
+            while (nameEnd > nameStart && LineScanner.isWhitespace(in.charAt(nameEnd - 1))) {
+                --nameEnd;
+            }
+            int player = intern(in, nameStart, nameEnd);
+            if (raced.getInt(player) == race) {
+                throw new IllegalArgumentException("Duplicate player in picks file: " + in.line());
+            }
+            raced.putInt(player, race);
+            for (int i = 0; i < 4; ++i) {
+                picks.putInt(4 * player + i, cars[i]);
+            }
+            entrants.ensure(4L * (entrantCount + 1));
+            entrants.putInt(entrantCount++, player);
+        }
+    }
+
+    // scores the entrants and pays out, like Players.applyResults
+    void applyResults(Results results, boolean qualifyingCanceled, Rules rules) {
+        Report.info("\nApplying Results...");
+        int[] scores = rules.scores(results, qualifyingCanceled);
+        int places = rules.getPlaces();
+        int[] top = (entrantCount < ScoringTask.THRESHOLD)
+                ? score(0, entrantCount, scores, places)
+                : ForkJoinPool.commonPool().invoke(new Shard(0, entrantCount, scores, places));
+
+        for (int e = 0; e < entrantCount; ++e) {
+            int player = entrants.getInt(e);
+            balances.putInt(player, balances.getInt(player) - rules.getAnte());
+        }
+        int[] payouts = rules.getPayouts(entrantCount);
+        for (int i = 0; i < Math.min(top.length, payouts.length); ++i) {
+            int player = entrants.getInt(top[i]);
+            balances.putInt(player, balances.getInt(player) + rules.getAnte() + payouts[i]);
+        }
+    }
+
+    // scores entrants [from, to) and returns the top places of them, as entrant positions
+    private int[] score(int from, int to, int[] scores, int places) {
+        int[] top = new int[Math.min(places, to - from)];
+        int n = 0;
+        for (int e = from; e < to; ++e) {
+            int player = entrants.getInt(e);
+            int p = 4 * player;
+            int weekly = scores[picks.getInt(p)] + scores[picks.getInt(p + 1)] + scores[picks.getInt(p + 2)]
+                    + scores[picks.getInt(p + 3)];
+            points.putInt(player, weekly);
+            totals.putInt(player, totals.getInt(player) + weekly);
+
+            long key = key(e);
+            if (n == top.length && key >= key(top[n - 1])) {
+                continue;
+            }
+            int j = (n < top.length) ? n++ : n - 1;
+            while (j > 0 && key < key(top[j - 1])) {
+                top[j] = top[j - 1];
+                --j;
+            }
+            top[j] = e;
+        }
+        return top;
+    }
+
+    private long key(int entrant) {
+        int player = entrants.getInt(entrant);
+        return Ranking.key(points.getInt(player), totals.getInt(player));
+    }
+
+    // the players by total desc, ties in the order they joined, as Standings.lines() orders them
+    void render(Renderer renderer) throws IOException {
+        long[] order = new long[size];
+        for (int player = 0; player < size; ++player) {
+            order[player] = ((long) -totals.getInt(player) << 32) | player;
+        }
+        Arrays.sort(order);
+        for (long o : order) {
+            int player = (int) o;
+            renderer.standing(getName(player), totals.getInt(player), balances.getInt(player));
+        }
+    }
+
+    // streamed as text, timed as a write phase
+    void writeStandings(File file) throws IOException {
+        Metrics.Span span = Metrics.begin(Metrics.Phase.WRITE);
+        try (Writer out = Files.newBufferedWriter(file.toPath())) {
+            Renderer text = Renderer.of(Renderer.Format.TEXT, out);
+            render(text);
+            text.finish();
+        }
+        Metrics.end(span, size, file.length());
+    }
+
+    // the player named by the scanned bytes [from, to), added if new
+    private int intern(LineScanner in, int from, int to) {
+        int hash = 0x811c9dc5;
+        for (int i = from; i < to; ++i) {
+            hash = (hash ^ (in.charAt(i) & 0xff)) * 0x01000193;
+        }
+
+        int slot = mix(hash) & indexMask;
+        while (true) {
+            int entry = index.getInt(slot);
+            if (0 == entry) {
+                break;
+            }
+            if (nameEquals(entry - 1, in, from, to)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & indexMask;
+        }
+
+        int player = size++;
+        int offset = nameOffsets.getInt(player);
+        names.ensure((long) offset + (to - from));
+        for (int i = from; i < to; ++i) {
+            names.put(offset + i - from, (byte) in.charAt(i));
+        }
+        nameOffsets.ensure(4L * (player + 2));
+        nameOffsets.putInt(player + 1, offset + to - from);
+        picks.ensure(16L * size);
+        points.ensure(4L * size);
+        totals.ensure(4L * size);
+        balances.ensure(4L * size);
+        raced.ensure(4L * size);
+        points.putInt(player, 0);
+        totals.putInt(player, 0);
+        balances.putInt(player, 0);
+        raced.putInt(player, 0);
+
+        index.putInt(slot, player + 1);
+        if (2 * size > indexMask) {
+            rehash();
+        }
+        return player;
+    }
+
+    private boolean nameEquals(int player, LineScanner in, int from, int to) {
+        int offset = nameOffsets.getInt(player);
+        if (nameOffsets.getInt(player + 1) - offset != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; ++i) {
+            if (names.get(offset + i - from) != (byte) in.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        int capacity = 2 * (indexMask + 1);
+        Column next = new Column(4 * capacity);
+        int mask = capacity - 1;
+        for (int player = 0; player < size; ++player) {
+            int hash = 0x811c9dc5;
+            for (int i = nameOffsets.getInt(player); i < nameOffsets.getInt(player + 1); ++i) {
+                hash = (hash ^ (names.get(i) & 0xff)) * 0x01000193;
+            }
+            int slot = mix(hash) & mask;
+            while (0 != next.getInt(slot)) {
+                slot = (slot + 1) & mask;
+            }
+            next.putInt(slot, player + 1);
+        }
+        index = next;
+        indexMask = mask;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // Fork-join shards over the entrants, each handing back its top places to be merged left to right.
+    private class Shard extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int[] scores;
+        private final int places;
+
+        Shard(int from, int to, int[] scores, int places) {
+            this.from = from;
+            this.to = to;
+            this.scores = scores;
+            this.places = places;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= ScoringTask.SHARD) {
+                return score(from, to, scores, places);
+            }
+            int mid = from + Math.max(1, (to - from) / ScoringTask.SHARD / 2) * ScoringTask.SHARD;
+            Shard right = new Shard(mid, to, scores, places);
+            right.fork();
+            int[] a = new Shard(from, mid, scores, places).compute();
+            int[] b = right.join();
+
+            int[] top = new int[Math.min(places, a.length + b.length)];
+            int i = 0;
+            int j = 0;
+            for (int n = 0; n < top.length; ++n) {
+                top[n] = (j == b.length || (i < a.length && key(a[i]) <= key(b[j]))) ? a[i++] : b[j++];
+            }
+            return top;
+        }
+    }
+
+    // A growable off-heap column; direct buffers stay out of the GC's way however many players there are.
+    private static final class Column {
+        private ByteBuffer buf;
+
+        Column(int bytes) {
+            buf = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        }
+
+        int getInt(int i) {
+            return buf.getInt(i << 2);
+        }
+
+        void putInt(int i, int value) {
+            buf.putInt(i << 2, value);
+        }
+
+        byte get(int i) {
+            return buf.get(i);
+        }
+
+        void put(int i, byte value) {
+            buf.put(i, value);
+        }
+
+        void ensure(long bytes) {
+            if (bytes <= buf.capacity()) {
+                return;
+            }
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Player store column full at " + buf.capacity() + " bytes");
+            }
+            ByteBuffer next = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE,
+                    Math.max(bytes, 2L * buf.capacity()))).order(ByteOrder.nativeOrder());
+            next.put(buf.duplicate().clear());
+            next.clear();
+            buf = next;
+        }
+    }
+}
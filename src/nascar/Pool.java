@@ -2,35 +2,89 @@ package nascar;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.stream.IntStream;
 
 public class Pool {
 
-    static private final int $ANTE = 5;
-    static private final int $FIRST = 15;
-    static private final int $SECOND = 10;
-    static private final int $THIRD = 5;
+    static final String FILES_DIR = "files";
 
     public static void main(String[] args) {
+        try {
+            args = reportOptions(args);
+        } catch (Exception e) {
+            usage();
+            return;
+        }
         if (args.length == 0) {
             usage();
             return;
         }
 
+        try {
+            run(args);
+        } finally {
+            if (Metrics.isSummary()) {
+                System.out.println("\nRun metrics:");
+                Metrics.get().lines().forEach(System.out::println);
+            }
+            Report.close();
+        }
+    }
+
+    // strips [--verbosity quiet|info|audit] [--audit <file>] [--format <format>] [--metrics] from anywhere in the
+    // arguments
+    private static String[] reportOptions(String[] args) throws IOException {
+        List<String> rest = new ArrayList<>();
+        Report.Level level = null;
+        for (int i = 0; i < args.length; ++i) {
+            if ("--verbosity".equals(args[i]) && i + 1 < args.length) {
+                level = Report.Level.valueOf(args[++i].toUpperCase());
+                Report.setLevel(level);
+            } else if ("--audit".equals(args[i]) && i + 1 < args.length) {
+                Report.setAuditFile(new File(args[++i]));
+            } else if ("--format".equals(args[i]) && i + 1 < args.length) {
+                Renderer.setFormat(Renderer.Format.valueOf(args[++i].toUpperCase()));
+            } else if ("--metrics".equals(args[i])) {
+                Metrics.setSummary(true);
+                Metrics.publish();
+            } else {
+                rest.add(args[i]);
+            }
+        }
+        // a csv, json or html report has stdout to itself, so it can be parsed
+        if (Renderer.Format.TEXT != Renderer.getFormat()) {
+            if ((null != level && Report.Level.QUIET != level) || Metrics.isSummary()) {
+                throw new IllegalArgumentException("--format " + Renderer.getFormat().toString().toLowerCase()
+                        + " needs quiet verbosity and no --metrics");
+            }
+            Report.setLevel(Report.Level.QUIET);
+        }
+        return rest.toArray(new String[rest.size()]);
+    }
+
+    private static void run(String[] args) {
         switch (args[0]) {
             case "--results": {
+                if (args.length == 6 && "--canceled".equals(args[4])) {
+                    handleResults(args[1], args[2], args[3], args[5].toLowerCase().startsWith("y"));
+                    return;
+                }
                 if (args.length != 4) {
                     usage();
                     return;
@@ -40,7 +94,7 @@ public class Pool {
                 return;
             }
             case "--picks": {
-                if (args.length != 2 && args.length != 3) {
+                if (args.length != 3 && args.length != 4) {
                     usage();
                     return;
                 }
@@ -48,232 +102,1131 @@ public class Pool {
                 handleRawPicks(args[1], args[2], ((args.length == 4) && (args[3].toLowerCase().equals("--force"))));
                 return;
             }
+            case "--ingest": {
+                if (args.length != 4 && !(args.length == 5 && args[4].toLowerCase().equals("--force"))) {
+                    usage();
+                    return;
+                }
+
+                handleIngest(args[1], args[2], args[3], args.length == 5);
+                return;
+            }
+            case "--season": {
+                if (args.length < 2 || args.length % 2 != 0) {
+                    usage();
+                    return;
+                }
+
+                Set<Integer> canceled = new HashSet<>();
+                Set<Integer> write = new HashSet<>();
+                File snapshot = null;
+                File ledger = null;
+                boolean offHeap = false;
+                for (int i = 2; i < args.length; i += 2) {
+                    switch (args[i]) {
+                        case "--canceled":
+                            canceled.addAll(parseRaceNums(args[i + 1]));
+                            break;
+                        case "--write":
+                            write = args[i + 1].toLowerCase().equals("all") ? null : parseRaceNums(args[i + 1]);
+                            break;
+                        case "--snapshot":
+                            snapshot = new File(args[i + 1]);
+                            break;
+                        case "--ledger":
+                            ledger = new File(args[i + 1]);
+                            break;
+                        case "--store":
+                            if (!args[i + 1].equals("heap") && !args[i + 1].equals("offheap")) {
+                                usage();
+                                return;
+                            }
+                            offHeap = args[i + 1].equals("offheap");
+                            break;
+                        default:
+                            usage();
+                            return;
+                    }
+                }
+                if (offHeap && (null != snapshot || null != ledger)) {
+                    System.out.println("--store offheap can't be combined with --snapshot or --ledger");
+                    return;
+                }
+
+                if (offHeap) {
+                    handleSeasonOffHeap(args[1], canceled, write);
+                } else {
+                    handleSeason(args[1], canceled, write, snapshot, ledger);
+                }
+                return;
+            }
+            case "--live": {
+                if (args.length < 3) {
+                    usage();
+                    return;
+                }
+
+                boolean canceled = false;
+                long idleMillis = 0;
+                File feed = null;
+                long feedMillis = 0;
+                for (int i = 3; i < args.length; ++i) {
+                    if ("--canceled".equals(args[i])) {
+                        canceled = true;
+                    } else if ("--idle".equals(args[i]) && i + 1 < args.length) {
+                        idleMillis = 1000L * Integer.valueOf(args[++i]);
+                    } else if ("--feed".equals(args[i]) && i + 2 < args.length) {
+                        feed = new File(args[++i]);
+                        feedMillis = Integer.valueOf(args[++i]);
+                    } else {
+                        usage();
+                        return;
+                    }
+                }
+
+                handleLive(args[1], args[2], canceled, idleMillis, feed, feedMillis);
+                return;
+            }
+            case "--simulate": {
+                if (args.length < 3) {
+                    usage();
+                    return;
+                }
+
+                String dir = FILES_DIR;
+                Set<Integer> canceled = new HashSet<>();
+                long seed = System.nanoTime();
+                for (int i = 3; i < args.length; ++i) {
+                    if ("--canceled".equals(args[i]) && i + 1 < args.length) {
+                        canceled.addAll(parseRaceNums(args[++i]));
+                    } else if ("--seed".equals(args[i]) && i + 1 < args.length) {
+                        seed = Long.valueOf(args[++i]);
+                    } else if (3 == i && !args[i].startsWith("--")) {
+                        dir = args[i];
+                    } else {
+                        usage();
+                        return;
+                    }
+                }
+
+                handleSimulate(Integer.valueOf(args[1]), Integer.valueOf(args[2]), dir, canceled, seed);
+                return;
+            }
+            case "--optimal": {
+                String dir = FILES_DIR;
+                Set<Integer> canceled = new HashSet<>();
+                int top = 10;
+                for (int i = 1; i < args.length; ++i) {
+                    if ("--canceled".equals(args[i]) && i + 1 < args.length) {
+                        canceled.addAll(parseRaceNums(args[++i]));
+                    } else if ("--top".equals(args[i]) && i + 1 < args.length) {
+                        top = Integer.valueOf(args[++i]);
+                    } else if (1 == i && !args[i].startsWith("--")) {
+                        dir = args[i];
+                    } else {
+                        usage();
+                        return;
+                    }
+                }
+                if (top < 1) {
+                    usage();
+                    return;
+                }
+
+                handleOptimal(dir, canceled, top);
+                return;
+            }
+            case "--compare-rules": {
+                if (args.length < 3) {
+                    usage();
+                    return;
+                }
+
+                Set<Integer> canceled = new HashSet<>();
+                List<File> variants = new ArrayList<>();
+                for (int i = 2; i < args.length; ++i) {
+                    if ("--canceled".equals(args[i]) && i + 1 < args.length) {
+                        canceled.addAll(parseRaceNums(args[++i]));
+                    } else {
+                        variants.add(new File(args[i]));
+                    }
+                }
+
+                handleCompareRules(args[1], variants, canceled);
+                return;
+            }
+            case "--generate": {
+                if (args.length < 5) {
+                    usage();
+                    return;
+                }
+
+                long seed = 2019;
+                boolean staged = false;
+                for (int i = 5; i < args.length; ++i) {
+                    if ("--seed".equals(args[i]) && i + 1 < args.length) {
+                        seed = Long.valueOf(args[++i]);
+                    } else if ("--staged".equals(args[i])) {
+                        staged = true;
+                    } else {
+                        usage();
+                        return;
+                    }
+                }
+
+                handleGenerate(args[1], Integer.valueOf(args[2]), Integer.valueOf(args[3]), Integer.valueOf(args[4]),
+                        seed, staged);
+                return;
+            }
+            case "--query": {
+                if (args.length < 3) {
+                    usage();
+                    return;
+                }
+
+                Set<Integer> canceled = new HashSet<>();
+                List<String> query = new ArrayList<>(Arrays.asList(args).subList(2, args.length));
+                int at = query.indexOf("--canceled");
+                if (at >= 0) {
+                    if (at + 1 >= query.size()) {
+                        usage();
+                        return;
+                    }
+                    canceled.addAll(parseRaceNums(query.remove(at + 1)));
+                    query.remove(at);
+                }
+                handleQuery(args[1], canceled, query.toArray(new String[query.size()]));
+                return;
+            }
+            case "--leagues": {
+                if (args.length != 5 && !(args.length == 6 && "--canceled".equals(args[5]))) {
+                    usage();
+                    return;
+                }
+
+                handleLeagues(args[1], args[2], args[3], args[4], args.length == 6);
+                return;
+            }
+            case "--rivals": {
+                if (args.length < 2) {
+                    usage();
+                    return;
+                }
+
+                List<String> names = new ArrayList<>();
+                Set<Integer> canceled = new HashSet<>();
+                int top = 3;
+                File export = null;
+                for (int i = 2; i < args.length; ++i) {
+                    if (!args[i].startsWith("--")) {
+                        names.add(args[i]);
+                    } else if (i + 1 == args.length) {
+                        usage();
+                        return;
+                    } else if ("--canceled".equals(args[i])) {
+                        canceled.addAll(parseRaceNums(args[++i]));
+                    } else if ("--top".equals(args[i])) {
+                        top = Integer.parseInt(args[++i]);
+                    } else if ("--export".equals(args[i])) {
+                        export = new File(args[++i]);
+                    } else {
+                        usage();
+                        return;
+                    }
+                }
+                if (names.size() > 2 || top < 1) {
+                    usage();
+                    return;
+                }
+
+                handleRivals(args[1], names, canceled, top, export);
+                return;
+            }
+            case "--history": {
+                if (args.length < 2) {
+                    usage();
+                    return;
+                }
+
+                String player = null;
+                File export = null;
+                for (int i = 2; i < args.length; ++i) {
+                    if ("--export".equals(args[i]) && i + 1 < args.length) {
+                        export = new File(args[++i]);
+                    } else if (2 == i && !args[i].startsWith("--")) {
+                        player = args[i];
+                    } else {
+                        usage();
+                        return;
+                    }
+                }
+
+                handleHistory(new File(args[1]), player, export);
+                return;
+            }
+            case "--ledger": {
+                if (args.length != 2 && args.length != 3) {
+                    usage();
+                    return;
+                }
+
+                handleLedger(new File(args[1]), (args.length == 3) ? Integer.valueOf(args[2]) : Integer.MAX_VALUE);
+                return;
+            }
+            case "--daemon": {
+                if (args.length != 2) {
+                    usage();
+                    return;
+                }
+
+                try {
+                    new Daemon(args[1]).serve();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    System.out.println("Failed to run daemon: " + e.getMessage());
+                }
+                return;
+            }
+            case "--send": {
+                if (args.length < 3) {
+                    usage();
+                    return;
+                }
+
+                try {
+                    Daemon.send(args[1], String.join(" ", Arrays.asList(args).subList(2, args.length)));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    System.out.println("Failed to send command: " + e.getMessage());
+                }
+                return;
+            }
             default:
                 usage();
         }
     }
 
-    private static void usage() {
-        System.out.println("Invalid Argument. Usage:");
-        System.out.println("  option 1:  --results <race-num> <track> <next-track>");
-        System.out.println("  option 2:  --picks <race-num> <track> [--force]");
+    static Set<Integer> parseRaceNums(String raceNums) {
+        Set<Integer> result = new HashSet<>();
+        for (String rn : raceNums.split(",")) {
+            if (!rn.trim().isEmpty()) {
+                result.add(Integer.valueOf(rn.trim()));
+            }
+        }
+        return result;
+    }
+
+    private static void usage() {
+        System.out.println("Invalid Argument. Usage:");
+        System.out.println("  option 1:  --results <race-num> <track> <next-track> [--canceled y|n]");
+        System.out.println("  option 2:  --picks <race-num> <track> [--force]");
+        System.out.println("  option 3:  --season <dir> [--canceled <race-num,...>] [--write <race-num,...>|all]"
+                + " [--snapshot <file>] [--ledger <file>] [--store heap|offheap]");
+        System.out.println("  option 4:  --live <race-num> <track> [--canceled] [--idle <seconds>]"
+                + " [--feed <results-file> <ms-per-line>]");
+        System.out.println("  option 5:  --simulate <races-remaining> <iterations> [<dir>] [--canceled <race-num,...>]"
+                + " [--seed <n>]");
+        System.out.println("  option 6:  --optimal [<dir>] [--canceled <race-num,...>] [--top <n>]");
+        System.out.println("  option 7:  --history <snapshot> [<player>] [--export <standings-file>]");
+        System.out.println("  option 8:  --ledger <ledger-file> [<race-num>]");
+        System.out.println("  option 9:  --daemon <port>|<socket-path>|-");
+        System.out.println("  option 10: --send <port>|<socket-path> <command> (HELP for the daemon's commands)");
+        System.out.println("  option 11: --ingest <race-num> <track> <mbox-file|maildir> [--force]");
+        System.out.println("  option 12: --compare-rules <dir> <rules-file>... [--canceled <race-num,...>]");
+        System.out.println("  option 13: --generate <dir> <players> <cars> <races> [--seed <n>] [--staged]");
+        System.out.println("  option 14: --query <dir> <query> [--canceled <race-num,...>], where query is one of:");
+        SeasonIndex.usage().forEach(l -> System.out.println("           " + l));
+        System.out.println("  option 15: --leagues <root> <race-num> <track> <next-track> [--canceled]");
+        System.out.println("  option 16: --rivals <dir> [<player> [<opponent>]] [--top <n>] [--canceled <race-num,...>]"
+                + " [--export <file>]");
+        System.out.println("  any option: [--verbosity quiet|info|audit] [--audit <file>] [--metrics]");
+        System.out.println("              [--format text|csv|json|html] (of the results e-mail and standings; other");
+        System.out.println("              than text, quiet verbosity and no --metrics, so stdout is only the report)");
+    }
+
+    static void handleRawPicks(String raceNum, String track, boolean forceFileCreate) {
+        try {
+            String filePrefix = new File(FILES_DIR, raceNum + "-" + track).getPath();
+            File rawPicksfile = new File(filePrefix + "-raw-picks.txt");
+            if (!rawPicksfile.canRead()) {
+                throw new IllegalArgumentException("Can't read raw-picks file: " + rawPicksfile.getAbsolutePath());
+            }
+            File picksFile = new File(filePrefix + "-picks.txt");
+            File resultsFile = new File(filePrefix + "-results.txt");
+            clearRaceFiles(picksFile, resultsFile, forceFileCreate);
+
+            List<String> picks = new ArrayList<>();
+
+            try {
+                LineScanner in = new LineScanner(rawPicksfile);
+                while (in.nextLine()) {
+                    if (Report.isAuditEnabled()) {
+                        Report.audit(Report.Event.rawPick(in.line()));
+                    }
+                    String fl = formatRawPick(in);
+                    if (null == fl) {
+                        throw new IllegalArgumentException("Invalid line in picks file: " + in.line());
+                    }
+                    picks.add(fl);
+                }
+                if (Report.isAuditEnabled()) {
+                    picks.stream().forEach(fl -> Report.audit(Report.Event.pick(fl)));
+                }
+                writeLines(picksFile, picks);
+
+                resultsFile.createNewFile();
+
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to process raw-picks files: " + e.getMessage());
+        }
+    }
+
+    // a new race's picks and results files must not exist yet, unless forced
+    static void clearRaceFiles(File picksFile, File resultsFile, boolean forceFileCreate) throws IOException {
+        if (!forceFileCreate && picksFile.exists()) {
+            throw new IllegalArgumentException(
+                    "Can't write picks file, it already exists: " + picksFile.getAbsolutePath());
+        }
+        if (!forceFileCreate && !resultsFile.createNewFile()) {
+            throw new IllegalArgumentException(
+                    "Can't create results file, it already exists: " + resultsFile.getAbsolutePath());
+        }
+        picksFile.delete();
+        resultsFile.delete();
+    }
+
+    static void handleIngest(String raceNum, String track, String source, boolean forceFileCreate) {
+        try {
+            long start = System.nanoTime();
+            String filePrefix = new File(FILES_DIR, raceNum + "-" + track).getPath();
+            Ingest ingest = new Ingest(new File(source));
+            File picksFile = new File(filePrefix + "-picks.txt");
+            File resultsFile = new File(filePrefix + "-results.txt");
+            File rejectsFile = new File(filePrefix + "-rejects.txt");
+            if (!forceFileCreate && picksFile.exists()) {
+                throw new IllegalArgumentException(
+                        "Can't write picks file, it already exists: " + picksFile.getAbsolutePath());
+            }
+            if (!forceFileCreate && resultsFile.exists()) {
+                throw new IllegalArgumentException(
+                        "Can't create results file, it already exists: " + resultsFile.getAbsolutePath());
+            }
+
+            // nothing is touched until the source has been read, a failed scan leaves the race's files as they were
+            ingest.scan();
+            List<String> picks = new ArrayList<>();
+            for (Ingest.Submission s : ingest.getPicks()) {
+                if (Report.isAuditEnabled()) {
+                    Report.audit(Report.Event.rawPick(s.getRaw()));
+                    Report.audit(Report.Event.pick(s.getPick()));
+                }
+                picks.add(s.getPick());
+            }
+            replaceLines(picksFile, picks);
+            replaceLines(rejectsFile, ingest.getRejects());
+            resultsFile.delete();
+            resultsFile.createNewFile();
+
+            Report.info("\nIngested " + ingest.getMessages() + " messages in "
+                    + ((System.nanoTime() - start) / 1000000) + "ms");
+            System.out.println("Wrote " + picks.size() + " picks to " + picksFile.getPath() + " ("
+                    + ingest.getSuperseded() + " superseded by a later submission)");
+            if (!ingest.getRejects().isEmpty()) {
+                System.out.println(ingest.getRejects().size() + " rejected, see " + rejectsFile.getPath());
+            }
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to ingest picks: " + e.getMessage());
+        }
+    }
+
+    // Scans a raw pick line, "#<n>, <name> takes. <car> <car> <car> <car>" with anything between the cars, and
+    // returns it formatted for the picks file, or null if the line doesn't match. Where the name contains
+    // "takes" the last one followed by '.' or ' ' ends the name, as the greedy regex this replaces did.
+    static String formatRawPick(LineScanner in) {
+        if (in.peek() != '#') {
+            return null;
+        }
+        in.pos(in.pos() + 1);
+        if (!in.isDigit()) {
+            return null;
+        }
+        in.skipDigits();
+        if (in.peek() != ',') {
+            return null;
+        }
+        in.pos(in.pos() + 1);
+        if (!in.isWhitespace()) {
+            return null;
+        }
+        in.pos(in.pos() + 1);
+
+        int nameStart = in.pos();
+        in.skipName();
+        int[] cars = new int[8];
+        for (int t = in.pos() - 5; t > nameStart; --t) {
+            if (in.charAt(t - 1) != ' ' || !(in.matches(t, "takes") || in.matches(t, "Takes"))
+                    || (in.charAt(t + 5) != '.' && in.charAt(t + 5) != ' ')) {
+                continue;
+            }
+            in.pos(t + 6);
+            int found = 0;
+            for (; found < 4 && in.skipToDigit(); ++found) {
+                cars[2 * found] = in.pos();
+                in.skipDigits();
+                cars[2 * found + 1] = in.pos();
+            }
+            if (found < 4) {
+                continue;
+            }
+
+            StringBuilder sb = new StringBuilder(40);
+            for (int i = nameStart; i < t; ++i) {
+                sb.append(in.charAt(i) == ' ' ? '.' : (char) in.charAt(i));
+            }
+            while (sb.length() < 20) {
+                sb.append('.');
+            }
+            for (int i = 0; i < 4; ++i) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                if (cars[2 * i + 1] - cars[2 * i] < 2) {
+                    sb.append(' ');
+                }
+                for (int j = cars[2 * i]; j < cars[2 * i + 1]; ++j) {
+                    sb.append((char) in.charAt(j));
+                }
+            }
+            return sb.toString();
+        }
+        return null;
+    }
+
+    private static void handleResults(String raceNum, String track, String nextTrack) {
+        boolean qualifyingCanceled;
+        try {
+            Scanner reader = new Scanner(System.in);
+            System.out.println("Was Qualifying canceled? <y|n>: ");
+            String qualifyingCanceledArg = reader.next();
+            reader.close();
+            qualifyingCanceled = qualifyingCanceledArg.toLowerCase().startsWith("y") ? true : false;
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to parse pool files: " + e.getMessage());
+            return;
+        }
+
+        handleResults(raceNum, track, nextTrack, qualifyingCanceled);
+    }
+
+    static void handleResults(String raceNum, String track, String nextTrack, boolean qualifyingCanceled) {
+        handleResults(raceNum, track, nextTrack, qualifyingCanceled, null);
+    }
+
+    // frozen, when not null, are the race's picks as a PickWindow took them, in place of its picks file
+    static void handleResults(String raceNum, String track, String nextTrack, boolean qualifyingCanceled,
+            PickWindow.Frozen frozen) {
+        try {
+            Report.info("Calculating results. Qualifying canceled=" + qualifyingCanceled);
+            Results results = new Results(new File(FILES_DIR, raceNum + "-" + track).getPath() + "-results.txt");
+            scoreRace(new File(FILES_DIR), raceNum, track, nextTrack, qualifyingCanceled, results, frozen,
+                    System.out);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to parse pool files: " + e.getMessage());
+        }
+    }
+
+    // The weekly scoring of one pool directory: its picks (frozen, or else its picks file), standings, snapshot and
+    // ledger against results parsed by the caller, the results e-mail and standings printed to out.
+    static void scoreRace(File dir, String raceNum, String track, String nextTrack, boolean qualifyingCanceled,
+            Results results, PickWindow.Frozen frozen, PrintStream out) throws IOException {
+        Ledger ledger = null;
+        try {
+            Rules rules = Rules.load(dir);
+
+            String filePrefix = new File(dir, raceNum + "-" + track).getPath();
+            Report.info(results);
+            Players players = (null == frozen) ? new Players(filePrefix + "-picks.txt")
+                    : frozen.players(new File(filePrefix + "-picks.txt"));
+
+            // the season snapshot, when there is one, is the source of truth and the text standings an export
+            File snapshotFile = new File(dir, Snapshot.FILE);
+            Standings standings;
+            Snapshot.Builder history;
+            if (snapshotFile.canRead()) {
+                // read rather than mapped, it is replaced below
+                Snapshot snapshot = Snapshot.read(snapshotFile);
+                int before = snapshot.racesBefore(Integer.valueOf(raceNum));
+                if (before < snapshot.getRaces()) {
+                    Report.info("Replacing " + (snapshot.getRaces() - before) + " later race(s) in " + snapshotFile);
+                }
+                standings = snapshot.getStandings(before);
+                history = new Snapshot.Builder(snapshot, before);
+            } else {
+                standings = new Standings(filePrefix + "-standings.txt");
+                history = new Snapshot.Builder(standings);
+            }
+
+            // the ledger has the last word on balances, whatever happened to the files after it was written
+            int race = Integer.valueOf(raceNum);
+            ledger = new Ledger(new File(dir, Ledger.FILE));
+            ledger.open(race, standings);
+            ledger.restore(race, standings);
+            int rn = Integer.valueOf(raceNum) + 1; 
+            String nextRaceNum = (rn < 10) ? "0" + rn : "" + rn;
+            File nextRawPicksFile = new File(dir, nextRaceNum + "-" + nextTrack + "-raw-picks.txt");
+            File nextStandingsFile = new File(dir, nextRaceNum + "-" + nextTrack + "-standings.txt");
+
+            players.applyStandings(standings);
+            int[] balances = Ledger.balances(players);
+            
+            if (Report.isEnabled(Report.Level.INFO)) {
+                Report.info("\nPicks and current Standings:");
+                players.getPlayers().stream()
+                        .sorted(new Comparator<Player>() {
+                            public int compare(Player o1, Player o2) {
+                                return Integer.compare(o2.getTotal(), o1.getTotal());
+                            }
+                        })
+                        .forEach(p -> Report.info(p));
+            }
+
+            players.applyResults(results, qualifyingCanceled, rules);
+            ledger.record(race, players, balances);
+            ledger.flush();
+            
+            List<Player> sortedPlayers = Ranking.sort(players.getPlayers());
+            Metrics.add(Metrics.Counter.TIES, Ranking.countTies(sortedPlayers));
+            if (Report.isEnabled(Report.Level.INFO)) {
+                Ranking.ties(sortedPlayers).forEach(msg -> Report.info(msg));
+
+                Report.info("\nInitial Results ordered for payout:\n");
+                for (int i = sortedPlayers.size(); (i > 0); --i) {
+                    Player p = sortedPlayers.get(i - 1);
+                    Report.info("#" + i + ", " + p.getName() + " with " + p.getPoints() + " and yearly "
+                            + p.getTotal());
+                }
+            }
+
+            Report.info("\nFinal Results ordered for payout and picks");
+
+            // now that the preferred spots (1-4) are set, it's now better to have a lower finish for a better pick.
+            for (int i = rules.getPickSwapFrom(); (i < sortedPlayers.size()); ++i) {
+                Player pLo = sortedPlayers.get(i - 1);
+                Player pHi = sortedPlayers.get(i);
+                if (pHi.points == pLo.points) {
+                    String msg = String.format(
+                            "\nTie [%d points] detected between [%s,%d] and [%s,%d]. Pick preference goes to %s.",
+                            pLo.points, pLo.name, pLo.total, pHi.name, pHi.total, pLo.name);
+                    Report.info(msg);
+                    sortedPlayers.set(i - 1, pHi);
+                    sortedPlayers.set(i, pLo);
+                }
+            }
+
+            List<Player> byTotal = byTotal(players);
+            Renderer report = Renderer.report(out);
+            report.begin(Renderer.Section.EMAIL);
+            renderEmail(report, sortedPlayers, results);
+            report.end();
+            report.begin(Renderer.Section.STANDINGS);
+            renderStandings(report, byTotal);
+            report.end();
+            report.finish();
+
+            nextRawPicksFile.createNewFile();
+            writeStandings(nextStandingsFile, byTotal);
+
+            standings.update(players);
+            history.add(race, track, players, standings);
+            history.write(snapshotFile);
+
+        } finally {
+            closeLedger(ledger);
+        }
+    }
+
+    private static void handleLeagues(String root, String raceNum, String track, String nextTrack,
+            boolean qualifyingCanceled) {
+        try {
+            long start = System.nanoTime();
+            List<Leagues.Outcome> outcomes = new Leagues(new File(root)).run(raceNum, track, nextTrack,
+                    qualifyingCanceled);
+
+            System.out.println("\nScored " + raceNum + "-" + track + " for " + outcomes.size() + " leagues in "
+                    + ((System.nanoTime() - start) / 1000000) + "ms:\n");
+            Leagues.lines(outcomes).forEach(l -> System.out.println(l));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to score leagues: " + e.getMessage());
+        }
+    }
+
+    static void closeLedger(Ledger ledger) {
+        if (null != ledger) {
+            try {
+                ledger.close();
+            } catch (IOException e) {
+                System.out.println("Failed to close ledger: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void handleLive(String raceNum, String track, boolean qualifyingCanceled, long idleMillis,
+            File feed, long feedMillis) {
+        try {
+            String filePrefix = new File(FILES_DIR, raceNum + "-" + track).getPath();
+            File resultsFile = new File(filePrefix + "-results.txt");
+            File standingsFile = new File(filePrefix + "-standings.txt");
+            Players players = new Players(filePrefix + "-picks.txt");
+            Standings standings = standingsFile.canRead() ? new Standings(standingsFile.getPath()) : null;
+
+            LiveRace live = new LiveRace(resultsFile, players, standings, qualifyingCanceled,
+                    Rules.load(new File(FILES_DIR)));
+            if (null != feed) {
+                LiveRace.feed(feed, resultsFile, feedMillis);
+            }
+            Report.info("Watching " + resultsFile.getAbsolutePath() + " for " + players.getPlayers().size()
+                    + " players. Qualifying canceled=" + qualifyingCanceled);
+            live.watch(idleMillis);
+            live.leaderboard().forEach(l -> System.out.println(l));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to watch race: " + e.getMessage());
+        }
+    }
+
+    // fourth place picks first, then everyone else from last place up
+    static void renderEmail(Renderer renderer, List<Player> sortedPlayers, Results results) throws IOException {
+        Player player4 = sortedPlayers.get(3);
+        renderer.email(4, player4.getName(), player4.getPoints(), results.getHighestCar(player4.getPicks()));
+
+        for (int i = sortedPlayers.size(); (i > 0); --i) {
+            if (4 == i) {
+                continue;
+            }
+            Player p = sortedPlayers.get(i - 1);
+            renderer.email(i, p.getName(), p.getPoints(), results.getHighestCar(p.getPicks()));
+        }
+    }
+
+    static void renderStandings(Renderer renderer, List<Player> byTotal) throws IOException {
+        for (Player p : byTotal) {
+            renderer.standing(p.getName(), p.getTotal(), p.getBalance());
+        }
+    }
+
+    // streamed as text, timed as a write phase
+    static void writeStandings(File file, List<Player> byTotal) throws IOException {
+        Metrics.Span span = Metrics.begin(Metrics.Phase.WRITE);
+        try (Writer out = Files.newBufferedWriter(file.toPath())) {
+            Renderer text = Renderer.of(Renderer.Format.TEXT, out);
+            renderStandings(text, byTotal);
+            text.finish();
+        }
+        Metrics.end(span, byTotal.size(), file.length());
+    }
+
+    // timed as a write phase
+    static void writeLines(File file, List<String> lines) throws IOException {
+        Metrics.Span span = Metrics.begin(Metrics.Phase.WRITE);
+        Files.write(file.toPath(), lines);
+        Metrics.end(span, lines.size(), file.length());
+    }
+
+    // writes a temporary file first and moves it over file, which is never left half written
+    static void replaceLines(File file, List<String> lines) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), lines);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // by total desc, ties in picks file order
+    static List<Player> byTotal(Players players) {
+        Metrics.Span span = Metrics.begin(Metrics.Phase.SORT);
+        List<Player> sortedPlayers = players.getPlayers().stream()
+                .sorted(new Comparator<Player>() {
+                    public int compare(Player o1, Player o2) {
+                        return Integer.compare(o2.getTotal(), o1.getTotal());
+                    }
+                })
+                .collect(Collectors.toList());
+        Metrics.end(span, sortedPlayers.size(), 0);
+        return sortedPlayers;
+    }
+
+    private static void handleSeason(String dir, Set<Integer> canceled, Set<Integer> write, File snapshot,
+            File ledger) {
+        try {
+            long start = System.nanoTime();
+            Season season = new Season(new File(dir));
+            season.setSnapshot(snapshot);
+            season.setLedger(ledger);
+            Standings standings = season.replay(canceled, write);
+
+            Report.info("\nReplayed " + season.getCompleted() + " of " + season.getRaces().size()
+                    + " races in " + ((System.nanoTime() - start) / 1000000) + "ms");
+            renderStandings(standings);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to replay season: " + e.getMessage());
+        }
+    }
+
+    // the YTD standings report, to System.out in the --format
+    static void renderStandings(Standings standings) throws IOException {
+        Renderer report = Renderer.report(System.out);
+        report.begin(Renderer.Section.STANDINGS);
+        standings.render(report);
+        report.end();
+        report.finish();
+    }
+
+    private static void handleSeasonOffHeap(String dir, Set<Integer> canceled, Set<Integer> write) {
+        try {
+            long start = System.nanoTime();
+            Season season = new Season(new File(dir));
+            PlayerStore store = season.replayOffHeap(canceled, write);
+
+            Report.info("\nReplayed " + season.getCompleted() + " of " + season.getRaces().size()
+                    + " races in " + ((System.nanoTime() - start) / 1000000) + "ms, " + store.size()
+                    + " players off heap");
+            Renderer report = Renderer.report(System.out);
+            report.begin(Renderer.Section.STANDINGS);
+            store.render(report);
+            report.end();
+            report.finish();
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to replay season: " + e.getMessage());
+        }
+    }
+
+    private static void handleQuery(String dir, Set<Integer> canceled, String[] query) {
+        try {
+            Season season = new Season(new File(dir));
+            season.replay(canceled, Collections.emptySet());
+            long start = System.nanoTime();
+            List<String> lines = season.getIndex().query(query);
+            Report.info("\nAnswered from " + season.getCompleted() + " races in "
+                    + ((System.nanoTime() - start) / 1000) + "us\n");
+            lines.forEach(l -> System.out.println(l));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to query season: " + e.getMessage());
+        }
     }
 
-    private static void handleRawPicks(String raceNum, String track, boolean forceFileCreate) {
+    private static void handleRivals(String dir, List<String> names, Set<Integer> canceled, int top, File export) {
         try {
-            String filePrefix = "files\\" + raceNum + "-" + track; 
-            File rawPicksfile = new File(filePrefix + "-raw-picks.txt");
-            if (!rawPicksfile.canRead()) {
-                throw new IllegalArgumentException("Can't read raw-picks file: " + rawPicksfile.getAbsolutePath());
-            }
-            File picksFile = new File(filePrefix + "-picks.txt");
-            if (!forceFileCreate && picksFile.exists()) {
-                throw new IllegalArgumentException(
-                        "Can't write picks file, it already exists: " + picksFile.getAbsolutePath());
-            }
-            File resultsFile = new File(filePrefix + "-results.txt");
-            if (!forceFileCreate && !resultsFile.createNewFile()) {
-                throw new IllegalArgumentException(
-                        "Can't create results file, it already exists: " + resultsFile.getAbsolutePath());
+            long start = System.nanoTime();
+            Season season = new Season(new File(dir));
+            season.setRivalries(new Rivalries());
+            season.replay(canceled, Collections.emptySet());
+            Rivalries rivalries = season.getRivalries();
+            Report.info("\nHead to head records of " + rivalries.getPlayers() + " players over "
+                    + rivalries.getRaces() + " races in " + ((System.nanoTime() - start) / 1000000) + "ms\n");
+
+            List<String> lines = rivalryLines(rivalries, names, top);
+            if (null != export) {
+                writeLines(export, lines);
+                System.out.println("Exported " + lines.size() + " lines to " + export);
+            } else {
+                lines.forEach(l -> System.out.println(l));
             }
-            picksFile.delete();
-            resultsFile.delete();
 
-            String regex = "#\\d+,\\s([a-zA-Z ]+)\\b(takes|Takes)\\b\\b[. ].*?(\\d+).*?(\\d+).*?(\\d+).*?(\\d+).*";
-            Pattern pattern = Pattern.compile(regex);
-            Matcher matcher = pattern.matcher("");
-            List<String> picks = new ArrayList<>();
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to compute rivalries: " + e.getMessage());
+        }
+    }
 
-            //read file into stream, try-with-resources
-            try (Stream<String> stream = Files.lines(Paths.get(rawPicksfile.toURI()))) {
+    // names: none for every player's top rivals, a player for theirs, or a player and opponent for their record
+    static List<String> rivalryLines(Rivalries rivalries, List<String> names, int top) {
+        if (names.isEmpty()) {
+            return rivalries.lines(top);
+        }
+        if (names.size() == 2) {
+            int[] r = rivalries.record(names.get(0), names.get(1));
+            return Arrays.asList(names.get(0) + " vs " + names.get(1) + ": " + r[0] + " wins, " + r[1]
+                    + " losses, " + r[2] + " ties");
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(names.get(0) + "'s closest rivals (wins-losses-ties):");
+        rivalries.rivals(names.get(0), top).forEach(r -> lines.add("  " + r));
+        return lines;
+    }
 
-                stream.forEach(l -> {
-                    if (!l.trim().isEmpty()) {
-                        System.out.println(l);
-                        matcher.reset(l);
-                        if (!matcher.matches() || matcher.groupCount() != 6) {
-                            throw new IllegalArgumentException("Invalid line in picks file: " + l);
-                        }
-                        String player = String.format("%-20s", matcher.group(1)).replace(' ', '.');
-                        String fl = String.format("%s%2s, %2s, %2s, %2s", player, matcher.group(3),
-                                matcher.group(4), matcher.group(5), matcher.group(6));
-                        picks.add(fl);
-                    }
-                });
-                picks.stream().forEach(fl -> System.out.println(fl));
-                Files.write(Paths.get(picksFile.toURI()), picks);
+    private static void handleSimulate(int races, int iterations, String dir, Set<Integer> canceled, long seed) {
+        try {
+            Season season = new Season(new File(dir));
+            Standings standings = season.replay(canceled, Collections.emptySet());
+            Simulation simulation = new Simulation(season, standings, races);
 
-                resultsFile.createNewFile();
+            long start = System.nanoTime();
+            Simulation.Tally tally = simulation.run(iterations, seed);
+            Report.info("\nSimulated " + iterations + " seasons in " + ((System.nanoTime() - start) / 1000000)
+                    + "ms (seed " + seed + ")");
+
+            System.out.println("\nProjected final standings after " + races + " more races, from "
+                    + season.getCompleted() + " races of car results:\n");
+            simulation.lines(tally).forEach(l -> System.out.println(l));
 
-            } catch (IOException e) {
-                throw new RuntimeException(e.getMessage());
-            }
         } catch (Exception e) {
             e.printStackTrace();
-            System.out.println("Failed to process raw-picks files: " + e.getMessage());
+            System.out.println("Failed to simulate season: " + e.getMessage());
         }
     }
 
-    private static void handleResults(String raceNum, String track, String nextTrack) {
+    private static void handleOptimal(String dir, Set<Integer> canceled, int top) {
         try {
-            Scanner reader = new Scanner(System.in);
-            System.out.println("Was Qualifying canceled? <y|n>: ");
-            String qualifyingCanceledArg = reader.next();
-            reader.close();
-            boolean qualifyingCanceled = qualifyingCanceledArg.toLowerCase().startsWith("y") ? true : false;
-            System.out.println("Calculating results. Qualifying canceled=" + qualifyingCanceled);
+            Season season = new Season(new File(dir));
+            season.replay(canceled, Collections.emptySet());
+            OptimalPicks search = new OptimalPicks(season.getResults(), season.getScores());
 
-            String filePrefix = "files\\" + raceNum + "-" + track;
-            Results results = new Results( filePrefix + "-results.txt");
-            System.out.println(results);
-            Players players = new Players(filePrefix + "-picks.txt");
-            Standings standings = new Standings(filePrefix + "-standings.txt");
-            int rn = Integer.valueOf(raceNum) + 1; 
-            String nextRaceNum = (rn < 10) ? "0" + rn : "" + rn;
-            File nextRawPicksFile = new File("files\\" + nextRaceNum + "-" + nextTrack + "-raw-picks.txt");
-            File nextStandingsFile = new File("files\\" + nextRaceNum + "-" + nextTrack + "-standings.txt");
+            long start = System.nanoTime();
+            OptimalPicks.Pick[] picks = search.search(top);
+            Report.info("\nSearched every combination of a " + search.getFieldSize() + " car field in "
+                    + ((System.nanoTime() - start) / 1000000) + "ms");
 
-            players.applyStandings(standings);
-            
-            System.out.println("\nPicks and current Standings:");
-            players.getPlayers().stream()
-                    .sorted(new Comparator<Player>() {
-                        public int compare(Player o1, Player o2) {
-                            return Integer.compare(o2.getTotal(), o1.getTotal());
-                        }
-                    })
-                    .forEach(p -> System.out.println(p));
+            System.out.println("\nBest picks over " + search.getRaces() + " races (by expected points):\n");
+            search.lines(picks).forEach(l -> System.out.println(l));
 
-            players.applyResults(results, qualifyingCanceled);
-            
-            List<Player> sortedPlayers = players.getPlayers().stream()
-                    .sorted()
-                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to search picks: " + e.getMessage());
+        }
+    }
 
-            System.out.println("\nInitial Results ordered for payout:\n");
-            for (int i = sortedPlayers.size(); (i > 0); --i) {
-                Player p = sortedPlayers.get(i - 1);
-                String s = String.format("#%d, %s with %d and yearly %d", i, p.getName(), p.getPoints(), p.getTotal());
-                System.out.println(s);
+    private static void handleCompareRules(String dir, List<File> variants, Set<Integer> canceled) {
+        try {
+            Season season = new Season(new File(dir));
+            List<Rules> rules = new ArrayList<>();
+            rules.add(season.getRules());
+            for (File f : variants) {
+                rules.add(Rules.read(f));
             }
+            RulesComparison comparison = new RulesComparison(season, rules);
 
-            System.out.println("\nFinal Results ordered for payout and picks");
+            long start = System.nanoTime();
+            comparison.run(canceled);
+            Report.info("\nScored " + comparison.getCompleted() + " races under " + rules.size() + " rule sets in "
+                    + ((System.nanoTime() - start) / 1000000) + "ms");
 
-            for (int i = sortedPlayers.size() - 1; (i >= 0); --i) {
-                Player p = sortedPlayers.get(i);
-                String.format("#%d, %s, %d, %d", i + 1, p.getName(), p.getPoints(), p.getTotal());
-            }
+            System.out.println("\nYTD Standings by rule set (place, total points, balance):\n");
+            comparison.lines().forEach(l -> System.out.println(l));
 
-            // now that the preferred spots (1-4) are set, it's now better to have a lower finish for a better pick.
-            for (int i = 5; (i < sortedPlayers.size()); ++i) {
-                Player pLo = sortedPlayers.get(i - 1);
-                Player pHi = sortedPlayers.get(i);
-                if (pHi.points == pLo.points) {
-                    String msg = String.format(
-                            "\nTie [%d points] detected between [%s,%d] and [%s,%d]. Pick preference goes to %s.",
-                            pLo.points, pLo.name, pLo.total, pHi.name, pHi.total, pLo.name);
-                    System.out.println(msg);
-                    sortedPlayers.set(i - 1, pHi);
-                    sortedPlayers.set(i, pLo);
-                }
-            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to compare rules: " + e.getMessage());
+        }
+    }
 
-            System.out.println("\nResults E-Mail:");
-            Player player4 = sortedPlayers.get(3);
-            String s = String.format("#%d, %s with %d takes..........%d", 4, player4.getName(), player4.getPoints(),
-                    results.getHighestCar(player4.getPicks()));
-            System.out.println(s);
+    private static void handleGenerate(String dir, int players, int cars, int races, long seed, boolean staged) {
+        try {
+            long start = System.nanoTime();
+            new Generator(players, cars, races, seed).write(new File(dir), staged);
+            Report.info("\nGenerated in " + ((System.nanoTime() - start) / 1000000) + "ms");
+            System.out.println("Wrote " + races + " races of a " + cars + " car field for " + players + " players to "
+                    + dir + ", " + Generator.prefix(1) + " to " + Generator.prefix(races)
+                    + (staged ? " (results staged in " + Generator.STAGED_DIR + ")" : ""));
 
-            for (int i = sortedPlayers.size(); (i > 0); --i) {
-                if (4 == i) {
-                    continue;
-                }
-                Player p = sortedPlayers.get(i - 1);
-                s = String.format("#%d, %s with %d takes..........%d", i, p.getName(), p.getPoints(),
-                        results.getHighestCar(p.getPicks()));
-                System.out.println(s);
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to generate season: " + e.getMessage());
+        }
+    }
+
+    private static void handleHistory(File file, String player, File export) {
+        try {
+            Snapshot snapshot = new Snapshot(file);
+            if (null != export) {
+                Files.write(export.toPath(), snapshot.getStandings(snapshot.getRaces()).lines());
+                Report.info("Exported standings after " + snapshot.getRaces() + " races to " + export);
+                return;
             }
 
-            System.out.println("\nYTD Standings (by total points):\n");
-            sortedPlayers = players.getPlayers().stream()
-                    .sorted(new Comparator<Player>() {
-                        public int compare(Player o1, Player o2) {
-                            return Integer.compare(o2.getTotal(), o1.getTotal());
-                        }
-                    })
-                    .collect(Collectors.toList());
+            historyLines(snapshot, player).forEach(l -> System.out.println(l));
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.out.println("Failed to read season snapshot: " + e.getMessage());
+        }
+    }
 
-            ArrayList<String>  nextStandings = new ArrayList<>(10);
-            for (int i = 0; i < sortedPlayers.size(); ++i) {
-                Player p = sortedPlayers.get(i);
-                String player = String.format("%-15s", p.getName()).replace(' ', '.');
-                s = String.format("%s%4d.....%s", player, p.getTotal(), p.getBalanceString());
-                nextStandings.add(s);
-                System.out.println(s);
+    private static void handleLedger(File file, int race) {
+        Ledger ledger = null;
+        try {
+            long start = System.nanoTime();
+            ledger = Ledger.read(file);
+            Map<String, Integer> balances = ledger.balances(race);
+            Report.info("\nReplayed " + ledger.getReplayed() + " ledger groups past the checkpoint in "
+                    + ((System.nanoTime() - start) / 1000000) + "ms");
+            if (null == balances) {
+                System.out.println("No balances in " + file + " before race " + race);
+                return;
             }
-            
-            nextRawPicksFile.createNewFile();
-            Files.write(Paths.get(nextStandingsFile.toURI()), nextStandings);
+
+            System.out.println((Integer.MAX_VALUE == race)
+                    ? "\nBalances after race " + ledger.getLastRace() + ":\n"
+                    : "\nBalances going into race " + race + ":\n");
+            balances.forEach((name, balance) -> System.out.println(
+                    String.format("%-15s%s", name, Standing.balanceString(balance)).replace(' ', '.')));
 
         } catch (Exception e) {
             e.printStackTrace();
-            System.out.println("Failed to parse pool files: " + e.getMessage());
+            System.out.println("Failed to read ledger: " + e.getMessage());
+        } finally {
+            closeLedger(ledger);
+        }
+    }
+
+    // the whole season table, or one player's race by race history when player isn't null
+    static List<String> historyLines(Snapshot snapshot, String player) {
+        List<String> lines = new ArrayList<>();
+        if (null == player) {
+            lines.add("\nSeason of " + snapshot.getPlayers() + " players over " + snapshot.getRaces() + " races:\n");
+            for (int p = 0; p < snapshot.getPlayers(); ++p) {
+                StringBuilder sb = new StringBuilder(String.format("%-27s", formatStanding(snapshot.getName(p),
+                        snapshot.getTotal(p), snapshot.getBalance(p))));
+                for (int race = 0; race < snapshot.getRaces(); ++race) {
+                    int points = snapshot.getPoints(p, race);
+                    sb.append(String.format("%5s", (Snapshot.ABSENT == points) ? "-" : String.valueOf(points)));
+                }
+                lines.add(sb.toString());
+            }
+            return lines;
+        }
+
+        int p = snapshot.indexOf(player);
+        if (p < 0) {
+            lines.add("No player [" + player + "] in " + snapshot.getFile());
+            return lines;
         }
+        lines.add("\nSeason of " + player + ":\n");
+        for (int race = 0; race < snapshot.getRaces(); ++race) {
+            int points = snapshot.getPoints(p, race);
+            String name = String.format("%02d-%s", snapshot.getRaceNumber(race), snapshot.getTrack(race));
+            lines.add(String.format("%-15s%4s%6d.....%s", name.replace(' ', '.'),
+                    (Snapshot.ABSENT == points) ? "-" : String.valueOf(points), snapshot.getTotal(p, race),
+                    Standing.balanceString(snapshot.getBalance(p, race))));
+        }
+        return lines;
+    }
+
+    static String formatStanding(String name, int total, int balance) {
+        return Renderer.formatStanding(name, total, balance);
     }
 
-    private static class Results {
+    // Dense results table indexed by car number. Cars that didn't qualify (or weren't in the results file) hold
+    // DNQ in every column, which also makes them lose every points comparison.
+    static class Results {
+        static final int CARS = 100;
+        static final int DNQ = -1;
+
         File file;
-        private Map<Integer, Result> results = new HashMap<>();
+        private final int[] finish = new int[CARS];
+        private final int[] start = new int[CARS];
+        private final int[] points = new int[CARS];
+        private int size;
 
         Results(String results) {
-            this.file = new File(results);
-            process();
+            this(new File(results), null);
         }
 
-        private void process() {
-            if (!file.canRead()) {
+        // content, when not null, is the already read file
+        Results(File file, byte[] content) {
+            this.file = file;
+            Arrays.fill(finish, DNQ);
+            Arrays.fill(start, DNQ);
+            Arrays.fill(points, DNQ);
+            process(content);
+        }
+
+        private void process(byte[] content) {
+            if (null == content && !file.canRead()) {
                 throw new IllegalArgumentException("Can't read results file: " + file.getAbsolutePath());
             }
 
-            String regex = "^\\s*(\\d+).*?(\\d+).*?\\d+\\s+(\\d+)\\s+\\d+\\s+(\\d+).*$";
-            Pattern pattern = Pattern.compile(regex);
-            Matcher matcher = pattern.matcher("");
-
-            //read file into stream, try-with-resources
-            try (Stream<String> stream = Files.lines(Paths.get(file.toURI()))) {
-
-                stream.forEach(l -> {
-                    if (!l.trim().isEmpty()) {
-                        matcher.reset(l);
-                        if (!matcher.matches()) {
-                            throw new IllegalArgumentException("Line failed to match: " + l);
-                        }
-                        if (matcher.groupCount() != 4) {
-                            throw new IllegalArgumentException("Line resulted in only [" + matcher.groupCount() + "] groups: " + l);
-                        }
-                        Result r = new Result(matcher.group(1), matcher.group(2), matcher.group(3), matcher.group(4));
-                        results.put(r.getCarNumber(), r);
-                        //System.out.println(r);
+            // <finish> <car> ... then the first run of four numbers: <n> <start> <n> <points>
+            Metrics.Span span = Metrics.begin(Metrics.Phase.PARSE_RESULTS);
+            try {
+                LineScanner in = (null == content) ? new LineScanner(file) : new LineScanner(content);
+                while (in.nextLine()) {
+                    in.skipWhitespace();
+                    if (!in.isDigit()) {
+                        throw new IllegalArgumentException("Line failed to match: " + in.line());
+                    }
+                    int finish = in.readInt();
+                    if (!in.skipToDigit()) {
+                        throw new IllegalArgumentException("Line failed to match: " + in.line());
+                    }
+                    int carNumber = in.readInt();
+                    if (!in.skipToNumbers(4)) {
+                        throw new IllegalArgumentException("Line failed to match: " + in.line());
                     }
-                });
+                    in.skipDigits();
+                    in.skipWhitespace();
+                    int start = in.readInt();
+                    in.skipWhitespace();
+                    in.skipDigits();
+                    in.skipWhitespace();
+                    int points = in.readInt();
+
+                    if (carNumber >= CARS) {
+                        throw new IllegalArgumentException("Invalid car number [" + carNumber + "]: " + in.line());
+                    }
+                    if (!isQualified(carNumber)) {
+                        ++size;
+                    }
+                    this.finish[carNumber] = finish;
+                    this.start[carNumber] = start;
+                    this.points[carNumber] = points;
+                }
+                Metrics.end(span, size, in.length());
 
             } catch (IOException e) {
                 throw new RuntimeException(e.getMessage());
             }
         }
 
-        public Map<Integer, Result> getResults() {
-            return results;
+        public int size() {
+            return size;
         }
 
-        public int getHighestCar(List<Integer> cars) {
-            Integer highest = cars.get(0);
-            for (Integer car : cars) {
-                Result r = results.get(car);
-                if (null == r) {
-                    continue;
-                }
-                if (r.getPoints() > results.get(highest).getPoints()) {
+        public boolean isQualified(int car) {
+            return finish[car] != DNQ;
+        }
+
+        public int getFinish(int car) {
+            return finish[car];
+        }
+
+        public int getStart(int car) {
+            return start[car];
+        }
+
+        public int getPoints(int car) {
+            return points[car];
+        }
+
+        public int getHighestCar(int[] cars) {
+            int highest = cars[0];
+            for (int car : cars) {
+                if (points[car] > points[highest]) {
                     highest = car;
                 }
             }
@@ -283,139 +1236,170 @@ public class Pool {
         @Override
         public String toString() {
             StringBuffer sb = new StringBuffer("Results:");
-            results.values().stream()
-                    .sorted()
-                    .forEach(r -> sb.append(r.toString()));
+            IntStream.range(0, CARS)
+                    .filter(car -> isQualified(car))
+                    .boxed()
+                    .sorted(new Comparator<Integer>() {
+                        public int compare(Integer o1, Integer o2) {
+                            return Integer.compare(finish[o1], finish[o2]);
+                        }
+                    })
+                    .forEach(car -> sb.append("\nResult [finish=" + finish[car] + ", carNumber=" + car + ", points="
+                            + points[car] + ", start=" + start[car] + "]"));
             return sb.toString();
         }
     }
 
-    private static class Result implements Comparable<Result> {
-        int carNumber;
-        int start;
-        int finish;
-        int points;
-
-        public Result(String finish, String carNumber, String start,  String points) {
-            super();
-            this.finish = Integer.valueOf(finish);
-            this.start = Integer.valueOf(start);
-            this.carNumber = Integer.valueOf(carNumber);
-            this.points = Integer.valueOf(points);
-        }
-
-        public int getCarNumber() {
-            return carNumber;
-        }
-
-        public int getFinish() {
-            return finish;
-        }
-
-        public int getPoints() {
-            return points;
-        }
+    static class Players {
+        File file;
+        private List<Player> players = new ArrayList<>();
 
-        public int getStart() {
-            return start;
+        private Players() {
         }
 
-        @Override
-        public String toString() {
-            return "\nResult [finish=" + finish + ", carNumber=" + carNumber + ", points=" + points + ", start="
-                    + start
-                    + "]";
+        // picks taken some other way than from the file
+        Players(File file, List<Player> players) {
+            this.file = file;
+            this.players = players;
         }
 
-        @Override
-        public int compareTo(Result o) {
-            return Integer.compare(finish, o.finish);
+        Players(String picks) {
+            this(new File(picks), (byte[]) null);
         }
-    }
 
-    private static class Players {
-        File file;
-        private List<Player> players = new ArrayList<>();
-
-        Players(String picks) {
-            this.file = new File(picks);
-            process();
+        // content, when not null, is the already read file
+        Players(File file, byte[] content) {
+            this.file = file;
+            process(content);
         }
 
-        private void process() {
-            if (!file.canRead()) {
+        private void process(byte[] content) {
+            if (null == content && !file.canRead()) {
                 throw new IllegalArgumentException("Can't read picks file: " + file.getAbsolutePath());
             }
 
-            String regex = "^\\s*([a-zA-Z ]+)[\\.\\s]+?(\\d+).*?(\\d+).*?(\\d+).*?(\\d+).*$";
-            Pattern pattern = Pattern.compile(regex);
-            Matcher matcher = pattern.matcher("");
-
-            //read file into stream, try-with-resources
-            try (Stream<String> stream = Files.lines(Paths.get(file.toURI()))) {
-
-                stream.forEach(l -> {
-                    if (!l.trim().isEmpty()) {
-                        matcher.reset(l);
-                        if (!matcher.matches() || matcher.groupCount() != 5) {
-                            throw new IllegalArgumentException("Invalid line in picks file: " + l);
-                        }
-                        Player p = new Player(matcher.group(1), matcher.group(2), matcher.group(3), matcher.group(4),
-                                matcher.group(5));
-                        players.add(p);
-                        //System.out.println(p);
-                    }
-                });
+            // <name>[.\s]+<car> ... <car> ... <car> ... <car>
+            Metrics.Span span = Metrics.begin(Metrics.Phase.PARSE_PICKS);
+            try {
+                LineScanner in = (null == content) ? new LineScanner(file) : new LineScanner(content);
+                int[] cars = new int[4];
+                while (in.nextLine()) {
+                    in.skipWhitespace();
+                    int nameStart = in.pos();
+                    int nameEnd = parseLine(in, cars);
+                    Player p = new Player(in.string(nameStart, nameEnd), cars[0], cars[1], cars[2], cars[3]);
+                    players.add(p);
+                    //System.out.println(p);
+                }
+                Metrics.end(span, players.size(), in.length());
 
             } catch (IOException e) {
                 throw new RuntimeException(e.getMessage());
             }
         }
 
+        // parses the rest of a picks line, starting at the name, into cars and returns where the name ends
+        static int parseLine(LineScanner in, int[] cars) {
+            int nameStart = in.pos();
+            in.skipName();
+            int nameEnd = in.pos();
+            in.skipDotsAndWhitespace();
+            if (nameEnd == nameStart || !in.isDigit() || (in.pos() == nameEnd && in.charAt(nameEnd - 1) != ' ')) {
+                throw new IllegalArgumentException("Invalid line in picks file: " + in.line());
+            }
+            for (int i = 0; i < 4; ++i) {
+                if (!in.skipToDigit()) {
+                    throw new IllegalArgumentException("Invalid line in picks file: " + in.line());
+                }
+                cars[i] = in.readInt();
+                if (cars[i] >= Results.CARS) {
+                    throw new IllegalArgumentException("Invalid car number [" + cars[i] + "]: " + in.line());
+                }
+            }
+            return nameEnd;
+        }
+
         public List<Player> getPlayers() {
             return players;
         }
 
-        public void applyResults(Results results, boolean qualifyingCanceled) {
-            System.out.println("\nApplying Results...");
-            players.stream()
-                    .forEach(p -> {
-                        p.picks.stream()
-                                .forEach(c -> {
-                                    Result r = results.getResults().get(c);
-                                    if (null == r) {
-                                        System.out.println("Player [" + p.getName() + "] Car [" + c
-                                                + "] missing, may not have qualified!");
-                                    } else {
-                                        int points = r.getPoints();
-                                        int bonus = !qualifyingCanceled && (r.getStart() < 3) ? 1 : 0;
-                                        if (bonus == 1) {
-                                            System.out.println("Player [" + p.getName()
-                                                    + "] received a qualifying bonus point for car [" + c + "]!");
-                                        }
-                                        System.out.println(
-                                                "Player [" + p.getName() + "] car=" + c + ", points=" + points);
-                                        p.setPoints(p.getPoints() + points + bonus);
-                                    }
-                                });
-                        p.setTotal(p.getTotal() + p.getPoints());
-                    });
+        // fresh players with the same picks, for scoring a cached parse again
+        Players copy() {
+            Players copy = new Players();
+            copy.file = file;
+            for (Player p : players) {
+                copy.players.add(new Player(p.getName(), p.picks[0], p.picks[1], p.picks[2], p.picks[3]));
+            }
+            return copy;
+        }
 
-            List<Player> sortedPlayers = players.stream().sorted().collect(Collectors.toList());
-            sortedPlayers.get(0).deposit($FIRST);
-            sortedPlayers.get(1).deposit($SECOND);
-            sortedPlayers.get(2).deposit($THIRD);
-            for (Player p : sortedPlayers.subList(3, sortedPlayers.size())) {
-                p.debit($ANTE);
+        public void applyResults(Results results, boolean qualifyingCanceled, Rules rules) {
+            Report.info("\nApplying Results...");
+            applyResults(results, qualifyingCanceled, rules, Report.isAuditEnabled());
+        }
+
+        // audited false scores without audit events, for what-if scoring that isn't the pool's record
+        void applyResults(Results results, boolean qualifyingCanceled, Rules rules, boolean audited) {
+            Metrics.Span span = Metrics.begin(Metrics.Phase.APPLY_RESULTS);
+            int[] scores = rules.scores(results, qualifyingCanceled);
+            long[] keys = new long[players.size()];
+            Consumer<Report.Event> audit = audited ? e -> Report.audit(e) : null;
+            int[] top = (players.size() < ScoringTask.THRESHOLD)
+                    ? score(0, players.size(), results, scores, keys, rules.getPlaces(), audit)
+                    : ScoringTask.score(this, results, scores, keys, rules.getPlaces(), null != audit);
+
+            // the paid places get their payout instead of paying the ante
+            int[] payouts = rules.getPayouts(players.size());
+            for (Player p : players) {
+                p.debit(rules.getAnte());
+            }
+            for (int i = 0; i < Math.min(top.length, payouts.length); ++i) {
+                players.get(top[i]).deposit(rules.getAnte() + payouts[i]);
+            }
+            Metrics.add(Metrics.Counter.ENTRANTS, players.size());
+            Metrics.add(Metrics.Counter.PICKS, 4L * players.size());
+            Metrics.end(span, players.size(), 0);
+        }
+
+        // scores players [from, to), filling in their ranking keys, and returns the top places of the range. audit
+        // may be null when nobody is listening.
+        int[] score(int from, int to, Results results, int[] scores, long[] keys, int places,
+                Consumer<Report.Event> audit) {
+            int missing = 0;
+            for (int i = from; i < to; ++i) {
+                Player p = players.get(i);
+                int[] picks = p.picks;
+                for (int c : picks) {
+                    missing += results.isQualified(c) ? 0 : 1;
+                }
+                if (null != audit) {
+                    for (int c : picks) {
+                        if (!results.isQualified(c)) {
+                            audit.accept(Report.Event.carMissing(p.getName(), c));
+                        } else {
+                            if (scores[c] > results.getPoints(c)) {
+                                audit.accept(Report.Event.qualifyingBonus(p.getName(), c));
+                            }
+                            audit.accept(Report.Event.carPoints(p.getName(), c, results.getPoints(c)));
+                        }
+                    }
+                }
+                p.setPoints(p.getPoints() + scores[picks[0]] + scores[picks[1]] + scores[picks[2]] + scores[picks[3]]);
+                p.setTotal(p.getTotal() + p.getPoints());
+                keys[i] = Ranking.key(p.getPoints(), p.getTotal());
             }
+            Metrics.add(Metrics.Counter.MISSING_CARS, missing);
+            return Ranking.top(keys, from, to, places);
         }
 
         public void applyStandings(Standings standings) {
+            Metrics.Span span = Metrics.begin(Metrics.Phase.APPLY_STANDINGS);
             players.stream()
                     .forEach(p -> {
                         p.setBalance(standings.getTotals().get(p.getName()).getBalance());
                         p.setTotal(standings.getTotals().get(p.getName()).getTotal());
                     });
+            Metrics.end(span, players.size(), 0);
         }
 
         @Override
@@ -424,25 +1408,24 @@ public class Pool {
         }
     }
 
-    private static class Player implements Comparable<Player> {
+    static class Player implements Comparable<Player> {
         private String name;
-        private List<Integer> picks;
+        private int[] picks;
         private int points;
         private int total;
         private int balance;
 
-        public Player(String player, String car1, String car2, String car3, String car4) {
+        public Player(String player, int car1, int car2, int car3, int car4) {
             super();
             this.name = player.trim();
-            this.picks = Arrays.asList(Integer.valueOf(car1), Integer.valueOf(car2), Integer.valueOf(car3),
-                    Integer.valueOf(car4));
+            this.picks = new int[] { car1, car2, car3, car4 };
         }
 
         public String getName() {
             return name;
         }
 
-        public List<Integer> getPicks() {
+        public int[] getPicks() {
             return picks;
         }
 
@@ -467,15 +1450,7 @@ public class Pool {
         }
 
         public String getBalanceString() {
-            if (0 == balance) {
-                return "Even";
-            }
-
-            if (balance < 0) {
-                return "-$" + (balance * -1);
-            }
-
-            return "+$" + balance;
+            return Standing.balanceString(balance);
         }
 
         public void deposit(int amount) {
@@ -492,91 +1467,177 @@ public class Pool {
 
         @Override
         public String toString() {
-            return "Player [name=" + name + ", picks=" + picks + ", points=" + points + ", total=" + total
+            return "Player [name=" + name + ", picks=" + Arrays.toString(picks) + ", points=" + points + ", total=" + total
                     + ", balance=" + balance + "]";
         }
 
-        // order by weekly desc, then yearly asc (so, for a tie, lowest yearly points bubbles up to best payout 
+        // order by weekly desc, then yearly asc, see Ranking
         @Override
         public int compareTo(Player o) {
-            int res = Integer.compare(o.getPoints(), this.points);
-            if (res != 0) {
-                return res;
-            }
-            if (0 != this.points) {
-                String msg = String.format("\nTie [%d points] between [%s,%d] and [%s,%d]. Preferring %s for payout.",
-                        this.points, this.name, this.total, o.name, o.total, o.name);
-                System.out.println(msg);
-            }
-            return Integer.compare(this.total, o.getTotal());
+            return Long.compare(Ranking.key(points, total), Ranking.key(o.points, o.total));
         }
     }
 
-    private static class Standings {
+    static class Standings {
         File file;
-        private Map<String, Standing> totals = new HashMap<>();
+        private Map<String, Standing> totals = new LinkedHashMap<>();
+
+        Standings() {
+            this.file = null;
+        }
 
         Standings(String totals) {
-            this.file = new File(totals);
-            process();
+            this(new File(totals), null);
+        }
+
+        // content, when not null, is the already read file
+        Standings(File file, byte[] content) {
+            this.file = file;
+            process(content);
         }
 
-        private void process() {
-            if (!file.canRead()) {
+        private void process(byte[] content) {
+            if (null == content && !file.canRead()) {
                 throw new IllegalArgumentException("Can't read standings file: " + file.getAbsolutePath());
             }
 
-            String regex = "([a-zA-Z ]+)\\..*?(\\d+).*?([-+$Even\\d]+).*";
-            Pattern pattern = Pattern.compile(regex);
-            Matcher matcher = pattern.matcher("");
-
-            //read file into stream, try-with-resources
-            try (Stream<String> stream = Files.lines(Paths.get(file.toURI()))) {
-
-                stream.forEach(l -> {
-                    if (!l.trim().isEmpty()) {
-                        matcher.reset(l);
-                        if (!matcher.matches() || matcher.groupCount() != 3) {
-                            throw new IllegalArgumentException("Invalid line in totals file: " + l);
-                        }
-                        Standing t = new Standing(matcher.group(1), matcher.group(2), matcher.group(3));
-                        totals.put(t.getPlayer(), t);
-                        //System.out.println(t);
-                    }
-                });
+            // <name>.... <total> ... <balance>, where balance is "Even", "+$<n>" or "-$<n>"
+            Metrics.Span span = Metrics.begin(Metrics.Phase.PARSE_STANDINGS);
+            try {
+                LineScanner in = (null == content) ? new LineScanner(file) : new LineScanner(content);
+                int[] totalAndBalance = new int[2];
+                while (in.nextLine()) {
+                    int nameStart = in.pos();
+                    int nameEnd = parseLine(in, totalAndBalance);
+                    Standing t = new Standing(in.string(nameStart, nameEnd).trim(), totalAndBalance[0],
+                            totalAndBalance[1]);
+                    totals.put(t.getPlayer(), t);
+                    //System.out.println(t);
+                }
+                Metrics.end(span, totals.size(), in.length());
 
             } catch (IOException e) {
                 throw new RuntimeException(e.getMessage());
             }
         }
 
+        // parses a standings line into total and balance and returns where the name ends
+        static int parseLine(LineScanner in, int[] totalAndBalance) {
+            int nameStart = in.pos();
+            in.skipName();
+            int nameEnd = in.pos();
+            if (nameEnd == nameStart || in.peek() != '.' || !in.skipToDigit()) {
+                throw new IllegalArgumentException("Invalid line in totals file: " + in.line());
+            }
+            totalAndBalance[0] = in.readInt();
+            while (in.pos() < in.lineEnd() && !isBalanceChar(in.peek())) {
+                in.pos(in.pos() + 1);
+            }
+            int balanceStart = in.pos();
+            while (in.pos() < in.lineEnd() && isBalanceChar(in.peek())) {
+                in.pos(in.pos() + 1);
+            }
+            if (in.pos() == balanceStart) {
+                throw new IllegalArgumentException("Invalid line in totals file: " + in.line());
+            }
+            totalAndBalance[1] = parseBalance(in, balanceStart, in.pos());
+            return nameEnd;
+        }
+
         public Map<String, Standing> getTotals() {
             return totals;
         }
 
+        // Standing is never changed in place, so a copy of the table is enough
+        Standings copy() {
+            Standings copy = new Standings();
+            copy.file = file;
+            copy.totals.putAll(totals);
+            return copy;
+        }
+
+        private static boolean isBalanceChar(int b) {
+            return LineScanner.isDigit(b) || b == '-' || b == '+' || b == '$' || b == 'E' || b == 'v' || b == 'e'
+                    || b == 'n';
+        }
+
+        private static int parseBalance(LineScanner in, int from, int to) {
+            if (to - from == 4 && in.matchesIgnoreCase(from, "even")) {
+                return 0;
+            }
+            in.pos(from + 2);
+            if (to - from < 3 || !in.isDigit()) {
+                throw new NumberFormatException("For input string: \"" + in.string(Math.min(from + 2, to), to) + "\"");
+            }
+            int balance = in.readInt();
+            if (in.pos() != to) {
+                throw new NumberFormatException("For input string: \"" + in.string(from + 2, to) + "\"");
+            }
+            return in.charAt(from) == '-' ? -balance : balance;
+        }
+
+        // players who sat out keep their previous standing
+        public void update(Players players) {
+            players.getPlayers().stream()
+                    .forEach(p -> totals.put(p.getName(), new Standing(p.getName(), p.getTotal(), p.getBalance())));
+        }
+
+        public List<String> lines() {
+            return sorted().stream()
+                    .map(t -> formatStanding(t.getPlayer(), t.getTotal(), t.getBalance()))
+                    .collect(Collectors.toList());
+        }
+
+        public void render(Renderer renderer) throws IOException {
+            for (Standing t : sorted()) {
+                renderer.standing(t.getPlayer(), t.getTotal(), t.getBalance());
+            }
+        }
+
+        // streamed as text, timed as a write phase
+        public void write(File file) throws IOException {
+            List<Standing> sorted = sorted();
+            Metrics.Span span = Metrics.begin(Metrics.Phase.WRITE);
+            try (Writer out = Files.newBufferedWriter(file.toPath())) {
+                Renderer text = Renderer.of(Renderer.Format.TEXT, out);
+                for (Standing t : sorted) {
+                    text.standing(t.getPlayer(), t.getTotal(), t.getBalance());
+                }
+                text.finish();
+            }
+            Metrics.end(span, sorted.size(), file.length());
+        }
+
+        // by total desc
+        private List<Standing> sorted() {
+            Metrics.Span span = Metrics.begin(Metrics.Phase.SORT);
+            List<Standing> sorted = totals.values().stream()
+                    .sorted(new Comparator<Standing>() {
+                        public int compare(Standing o1, Standing o2) {
+                            return Integer.compare(o2.getTotal(), o1.getTotal());
+                        }
+                    })
+                    .collect(Collectors.toList());
+            Metrics.end(span, sorted.size(), 0);
+            return sorted;
+        }
+
         @Override
         public String toString() {
             return "Totals [totals=" + totals + "]";
         }
     }
 
-    private static class Standing {
+    static class Standing {
         String player;
         int total;
         int balance;
 
-        public Standing(String player, String points, String balance) {
+        public Standing(String player, int total, int balance) {
             super();
-            this.player = player.trim();
-            this.total = Integer.valueOf(points);
-            if ("even".equals(balance.toLowerCase())) {
-                this.balance = 0;
-            } else {
-                this.balance = Integer.valueOf(balance.substring(2));
-                if (balance.startsWith("-")) {
-                    this.balance *= -1;
-                }
-            }
+            this.player = player;
+            this.total = total;
+            this.balance = balance;
         }
 
         public String getPlayer() {
@@ -591,6 +1652,18 @@ public class Pool {
             return balance;
         }
 
+        static String balanceString(int balance) {
+            if (0 == balance) {
+                return "Even";
+            }
+
+            if (balance < 0) {
+                return "-$" + (balance * -1);
+            }
+
+            return "+$" + balance;
+        }
+
         @Override
         public String toString() {
             return "Total [player=" + player + ", total=" + total + ", balance=" + balance + "]";
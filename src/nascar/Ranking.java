@@ -0,0 +1,131 @@
+package nascar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nascar.Pool.Player;
+
+// Weekly ranking: weekly points desc, then yearly total asc (so, for a tie, lowest yearly points bubbles up to
+// best payout). Both are packed into one long per player so ordering never calls back into Player, and
+// players with equal keys keep their picks file order.
+class Ranking {
+
+    static long key(int points, int total) {
+        return ((long) -points << 32) | ((total ^ Integer.MIN_VALUE) & 0xffffffffL);
+    }
+
+    static long[] keys(List<Player> players) {
+        long[] keys = new long[players.size()];
+        for (int i = 0; i < keys.length; ++i) {
+            Player p = players.get(i);
+            keys[i] = key(p.getPoints(), p.getTotal());
+        }
+        return keys;
+    }
+
+    static List<Player> sort(List<Player> players) {
+        Metrics.Span span = Metrics.begin(Metrics.Phase.SORT);
+        int[] order = order(keys(players));
+        List<Player> sorted = new ArrayList<>(order.length);
+        for (int i : order) {
+            sorted.add(players.get(i));
+        }
+        Metrics.end(span, order.length, 0);
+        return sorted;
+    }
+
+    // indices ordered by key, a stable bottom-up merge sort
+    static int[] order(long[] keys) {
+        int n = keys.length;
+        int[] order = new int[n];
+        for (int i = 0; i < n; ++i) {
+            order[i] = i;
+        }
+        int[] tmp = new int[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, n);
+                if (keys[order[mid - 1]] <= keys[order[mid]]) {
+                    continue;
+                }
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi) {
+                    tmp[k++] = keys[order[j]] < keys[order[i]] ? order[j++] : order[i++];
+                }
+                while (i < mid) {
+                    tmp[k++] = order[i++];
+                }
+                while (j < hi) {
+                    tmp[k++] = order[j++];
+                }
+                System.arraycopy(tmp, lo, order, lo, hi - lo);
+            }
+        }
+        return order;
+    }
+
+    // the first k indices of order(keys), without sorting everything
+    static int[] top(long[] keys, int k) {
+        return top(keys, 0, keys.length, k);
+    }
+
+    static int[] top(long[] keys, int from, int to, int k) {
+        if (k <= 0) {
+            return new int[0];
+        }
+        int[] top = new int[Math.min(k, to - from)];
+        int size = 0;
+        for (int i = from; i < to; ++i) {
+            if (size == top.length && keys[i] >= keys[top[size - 1]]) {
+                continue;
+            }
+            int j = (size < top.length) ? size++ : size - 1;
+            while (j > 0 && keys[i] < keys[top[j - 1]]) {
+                top[j] = top[j - 1];
+                --j;
+            }
+            top[j] = i;
+        }
+        return top;
+    }
+
+    // merges the top candidates of two adjacent ranges, a before b, into the top k of both
+    static int[] merge(long[] keys, int[] a, int[] b, int k) {
+        int[] top = new int[Math.min(k, a.length + b.length)];
+        int i = 0;
+        int j = 0;
+        for (int n = 0; n < top.length; ++n) {
+            top[n] = (j == b.length || (i < a.length && keys[a[i]] <= keys[b[j]])) ? a[i++] : b[j++];
+        }
+        return top;
+    }
+
+    // adjacent pairs of sorted players tied on (non-zero) weekly points
+    static int countTies(List<Player> sortedPlayers) {
+        int ties = 0;
+        for (int i = 1; i < sortedPlayers.size(); ++i) {
+            int points = sortedPlayers.get(i).getPoints();
+            if (points == sortedPlayers.get(i - 1).getPoints() && 0 != points) {
+                ++ties;
+            }
+        }
+        return ties;
+    }
+
+    // one message per adjacent pair of sorted players tied on (non-zero) weekly points
+    static List<String> ties(List<Player> sortedPlayers) {
+        List<String> ties = new ArrayList<>();
+        for (int i = 1; i < sortedPlayers.size(); ++i) {
+            Player hi = sortedPlayers.get(i - 1);
+            Player lo = sortedPlayers.get(i);
+            if (hi.getPoints() == lo.getPoints() && 0 != hi.getPoints()) {
+                ties.add(String.format("\nTie [%d points] between [%s,%d] and [%s,%d]. Preferring %s for payout.",
+                        hi.getPoints(), hi.getName(), hi.getTotal(), lo.getName(), lo.getTotal(), hi.getName()));
+            }
+        }
+        return ties;
+    }
+}
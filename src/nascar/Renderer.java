@@ -0,0 +1,380 @@
+package nascar;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Streams the pool's reports, the results e-mail and the standings, into a Writer as text, CSV, JSON or HTML.
+// Every row is appended into one reused StringBuilder, numbers and padding included, and copied to the Writer
+// from there: no format strings are parsed and nothing is allocated per row, so writing a million standings is
+// bound by the Writer rather than formatting. Text is the pool's own layout, byte for byte what it always printed,
+// and what standings files are always written as, whatever the --format.
+abstract class Renderer {
+    enum Format {
+        TEXT, CSV, JSON, HTML
+    }
+
+    enum Section {
+        EMAIL("Results E-Mail", "results"),
+        STANDINGS("YTD Standings (by total points)", "standings");
+
+        final String title;
+        final String key;
+
+        Section(String title, String key) {
+            this.title = title;
+            this.key = key;
+        }
+    }
+
+    static final int NAME_WIDTH = 15;
+    static final int TOTAL_WIDTH = 4;
+    static final String NEWLINE = System.lineSeparator();
+
+    private static Format format = Format.TEXT;
+
+    protected final Writer out;
+    protected final StringBuilder line = new StringBuilder(128);
+    private char[] chars = new char[128];
+    protected boolean opened;
+    protected int sections;
+
+    protected Renderer(Writer out) {
+        this.out = out;
+    }
+
+    // --format, for reports; files the pool reads back are text regardless
+    static void setFormat(Format format) {
+        Renderer.format = format;
+    }
+
+    static Format getFormat() {
+        return format;
+    }
+
+    static Renderer of(Format format, Writer out) {
+        switch (format) {
+            case CSV:
+                return new Csv(out);
+            case JSON:
+                return new Json(out);
+            case HTML:
+                return new Html(out);
+            default:
+                return new Text(out);
+        }
+    }
+
+    // a report in the --format onto a stream that stays open, System.out or a league's e-mail; finish flushes it
+    static Renderer report(OutputStream out) {
+        return of(format, new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16));
+    }
+
+    abstract void begin(Section section) throws IOException;
+
+    abstract void email(int place, String player, int points, int car) throws IOException;
+
+    abstract void standing(String player, int total, int balance) throws IOException;
+
+    void end() throws IOException {
+    }
+
+    // closes the document, if any, and flushes
+    void finish() throws IOException {
+        out.flush();
+    }
+
+    // the text standings line, for the few callers that still want it as a String
+    static String formatStanding(String name, int total, int balance) {
+        StringBuilder sb = new StringBuilder(32);
+        appendStanding(sb, name, total, balance);
+        return sb.toString();
+    }
+
+    // <name> dotted out to 15 (its own spaces too), <total> right aligned in 4, ".....", <balance>
+    static void appendStanding(StringBuilder sb, String name, int total, int balance) {
+        for (int i = 0; i < name.length(); ++i) {
+            char c = name.charAt(i);
+            sb.append((' ' == c) ? '.' : c);
+        }
+        for (int i = name.length(); i < NAME_WIDTH; ++i) {
+            sb.append('.');
+        }
+        for (int i = digits(total); i < TOTAL_WIDTH; ++i) {
+            sb.append(' ');
+        }
+        sb.append(total).append(".....");
+        appendBalance(sb, balance);
+    }
+
+    // "Even", "+$<n>" or "-$<n>", as Standing.balanceString
+    static void appendBalance(StringBuilder sb, int balance) {
+        if (0 == balance) {
+            sb.append("Even");
+        } else if (balance < 0) {
+            sb.append("-$").append(-(long) balance);
+        } else {
+            sb.append("+$").append(balance);
+        }
+    }
+
+    // the characters Integer.toString(n) would take
+    static int digits(int n) {
+        long v = Math.abs((long) n);
+        int digits = (n < 0) ? 2 : 1;
+        while (v >= 10) {
+            v /= 10;
+            ++digits;
+        }
+        return digits;
+    }
+
+    // writes line plus a line separator, and empties it
+    protected void writeLine() throws IOException {
+        line.append(NEWLINE);
+        write();
+    }
+
+    protected void write() throws IOException {
+        int n = line.length();
+        if (n > chars.length) {
+            chars = new char[Math.max(n, 2 * chars.length)];
+        }
+        line.getChars(0, n, chars, 0);
+        out.write(chars, 0, n);
+        line.setLength(0);
+    }
+
+    // The pool's own layout.
+    static class Text extends Renderer {
+        Text(Writer out) {
+            super(out);
+        }
+
+        @Override
+        void begin(Section section) throws IOException {
+            line.append('\n').append(section.title).append(':');
+            if (Section.STANDINGS == section) {
+                line.append('\n');
+            }
+            writeLine();
+        }
+
+        @Override
+        void email(int place, String player, int points, int car) throws IOException {
+            line.append('#').append(place).append(", ").append(player).append(" with ").append(points)
+                    .append(" takes..........").append(car);
+            writeLine();
+        }
+
+        @Override
+        void standing(String player, int total, int balance) throws IOException {
+            appendStanding(line, player, total, balance);
+            writeLine();
+        }
+    }
+
+    // A header row per section, sections apart by a blank line. Balances are plain numbers.
+    static class Csv extends Renderer {
+        Csv(Writer out) {
+            super(out);
+        }
+
+        @Override
+        void begin(Section section) throws IOException {
+            if (sections++ > 0) {
+                writeLine();
+            }
+            line.append((Section.EMAIL == section) ? "place,player,points,car" : "player,total,balance");
+            writeLine();
+        }
+
+        @Override
+        void email(int place, String player, int points, int car) throws IOException {
+            line.append(place).append(',');
+            quote(player);
+            line.append(',').append(points).append(',').append(car);
+            writeLine();
+        }
+
+        @Override
+        void standing(String player, int total, int balance) throws IOException {
+            quote(player);
+            line.append(',').append(total).append(',').append(balance);
+            writeLine();
+        }
+
+        private void quote(String s) {
+            boolean quoted = false;
+            for (int i = 0; i < s.length() && !quoted; ++i) {
+                char c = s.charAt(i);
+                quoted = ',' == c || '"' == c || '\n' == c || '\r' == c;
+            }
+            if (!quoted) {
+                line.append(s);
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < s.length(); ++i) {
+                char c = s.charAt(i);
+                line.append(c);
+                if ('"' == c) {
+                    line.append('"');
+                }
+            }
+            line.append('"');
+        }
+    }
+
+    // One object, an array of rows per section keyed "results" and "standings", a row per line.
+    static class Json extends Renderer {
+        private int rows;
+
+        Json(Writer out) {
+            super(out);
+        }
+
+        // rows go out without their line separator, the next row or end() knows whether a comma comes first
+        @Override
+        void begin(Section section) throws IOException {
+            line.append((sections++ > 0) ? "," : "{").append('"').append(section.key).append("\":[");
+            rows = 0;
+            opened = true;
+        }
+
+        @Override
+        void email(int place, String player, int points, int car) throws IOException {
+            row();
+            line.append("{\"place\":").append(place).append(",\"player\":");
+            string(player);
+            line.append(",\"points\":").append(points).append(",\"car\":").append(car).append('}');
+            write();
+        }
+
+        @Override
+        void standing(String player, int total, int balance) throws IOException {
+            row();
+            line.append("{\"player\":");
+            string(player);
+            line.append(",\"total\":").append(total).append(",\"balance\":").append(balance).append('}');
+            write();
+        }
+
+        private void row() {
+            if (rows++ > 0) {
+                line.append(',');
+            }
+            line.append(NEWLINE);
+        }
+
+        private void string(String s) {
+            line.append('"');
+            for (int i = 0; i < s.length(); ++i) {
+                char c = s.charAt(i);
+                if ('"' == c || '\\' == c) {
+                    line.append('\\').append(c);
+                } else if (c < 0x20) {
+                    line.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 15, 16));
+                } else {
+                    line.append(c);
+                }
+            }
+            line.append('"');
+        }
+
+        @Override
+        void end() throws IOException {
+            line.append(NEWLINE).append(']');
+            write();
+        }
+
+        @Override
+        void finish() throws IOException {
+            line.append(opened ? NEWLINE + "}" : "{}");
+            writeLine();
+            super.finish();
+        }
+    }
+
+    // A page with a table per section.
+    static class Html extends Renderer {
+        Html(Writer out) {
+            super(out);
+        }
+
+        @Override
+        void begin(Section section) throws IOException {
+            if (!opened) {
+                line.append("<!DOCTYPE html>");
+                writeLine();
+                line.append("<html><head><meta charset=\"utf-8\"><title>NASCAR Pool</title></head><body>");
+                writeLine();
+                opened = true;
+            }
+            line.append("<h2>").append(section.title).append("</h2>");
+            writeLine();
+            line.append((Section.EMAIL == section)
+                    ? "<table><tr><th>Place</th><th>Player</th><th>Points</th><th>Car</th></tr>"
+                    : "<table><tr><th>Player</th><th>Total</th><th>Balance</th></tr>");
+            writeLine();
+        }
+
+        @Override
+        void email(int place, String player, int points, int car) throws IOException {
+            line.append("<tr><td>").append(place).append("</td><td>");
+            escape(player);
+            line.append("</td><td>").append(points).append("</td><td>").append(car).append("</td></tr>");
+            writeLine();
+        }
+
+        @Override
+        void standing(String player, int total, int balance) throws IOException {
+            line.append("<tr><td>");
+            escape(player);
+            line.append("</td><td>").append(total).append("</td><td>");
+            appendBalance(line, balance);
+            line.append("</td></tr>");
+            writeLine();
+        }
+
+        private void escape(String s) {
+            for (int i = 0; i < s.length(); ++i) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '<':
+                        line.append("&lt;");
+                        break;
+                    case '>':
+                        line.append("&gt;");
+                        break;
+                    case '&':
+                        line.append("&amp;");
+                        break;
+                    case '"':
+                        line.append("&quot;");
+                        break;
+                    default:
+                        line.append(c);
+                }
+            }
+        }
+
+        @Override
+        void end() throws IOException {
+            line.append("</table>");
+            writeLine();
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (opened) {
+                line.append("</body></html>");
+                writeLine();
+            }
+            super.finish();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package nascar;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Console and audit reporting. The results e-mail, standings and errors always go to stdout; progress messages
+// are INFO and the per-pick detail is AUDIT. Audit events are only built when someone will read them, and with
+// --audit <file> they are handed to a background writer instead of the console.
+class Report {
+
+    enum Level {
+        QUIET, INFO, AUDIT
+    }
+
+    enum Type {
+        RAW_PICK, PICK, CAR_MISSING, QUALIFYING_BONUS, CAR_POINTS
+    }
+
+    static final class Event {
+        final Type type;
+        final String player;
+        final int car;
+        final int points;
+
+        private Event(Type type, String player, int car, int points) {
+            this.type = type;
+            this.player = player;
+            this.car = car;
+            this.points = points;
+        }
+
+        static Event rawPick(String line) {
+            return new Event(Type.RAW_PICK, line, -1, 0);
+        }
+
+        static Event pick(String line) {
+            return new Event(Type.PICK, line, -1, 0);
+        }
+
+        static Event carMissing(String player, int car) {
+            return new Event(Type.CAR_MISSING, player, car, 0);
+        }
+
+        static Event qualifyingBonus(String player, int car) {
+            return new Event(Type.QUALIFYING_BONUS, player, car, 1);
+        }
+
+        static Event carPoints(String player, int car, int points) {
+            return new Event(Type.CAR_POINTS, player, car, points);
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case CAR_MISSING:
+                    return "Player [" + player + "] Car [" + car + "] missing, may not have qualified!";
+                case QUALIFYING_BONUS:
+                    return "Player [" + player + "] received a qualifying bonus point for car [" + car + "]!";
+                case CAR_POINTS:
+                    return "Player [" + player + "] car=" + car + ", points=" + points;
+                default:
+                    // raw and formatted pick lines carry the line in place of the player
+                    return player;
+            }
+        }
+    }
+
+    private static Level level = Level.AUDIT;
+    private static AuditWriter auditWriter;
+    private static final ThreadLocal<PrintStream> OUT = new ThreadLocal<>();
+
+    static void setLevel(Level level) {
+        Report.level = level;
+    }
+
+    static void setAuditFile(File file) throws IOException {
+        auditWriter = new AuditWriter(file);
+    }
+
+    // where this thread's info and audit lines go, System.out when null; for work running side by side
+    static void setOut(PrintStream out) {
+        if (null == out) {
+            OUT.remove();
+        } else {
+            OUT.set(out);
+        }
+    }
+
+    // this thread's stream as set above, null when it has none; for handing on to threads working for it
+    static PrintStream getOut() {
+        return OUT.get();
+    }
+
+    private static PrintStream out() {
+        PrintStream out = OUT.get();
+        return (null == out) ? System.out : out;
+    }
+
+    static boolean isEnabled(Level level) {
+        return Report.level.compareTo(level) >= 0;
+    }
+
+    static boolean isAuditEnabled() {
+        return null != auditWriter || Level.AUDIT == level;
+    }
+
+    static void info(Object msg) {
+        if (isEnabled(Level.INFO)) {
+            out().println(msg);
+        }
+    }
+
+    static void audit(Event event) {
+        if (null != auditWriter) {
+            auditWriter.add(event);
+        } else if (Level.AUDIT == level) {
+            out().println(event);
+        }
+    }
+
+    // flushes and closes the audit file, if any
+    static void close() {
+        if (null != auditWriter) {
+            auditWriter.close();
+            auditWriter = null;
+        }
+    }
+
+    // Formats and writes audit events on its own thread, in the order they were added.
+    private static class AuditWriter implements Runnable {
+        private static final Event END = Event.pick(null);
+
+        private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(1 << 16);
+        private final BufferedWriter writer;
+        private final Thread thread;
+        // whatever stopped the writer thread, after which events are dropped
+        private volatile Throwable failure;
+
+        AuditWriter(File file) throws IOException {
+            this.writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+            this.thread = new Thread(this, "audit-writer");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        // waits for room while the writer is alive, so a producer never blocks on a dead one
+        void add(Event event) {
+            try {
+                while (null == failure && !queue.offer(event, 100, TimeUnit.MILLISECONDS)) {
+                    if (!thread.isAlive()) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            List<Event> batch = new ArrayList<>(1024);
+            try {
+                while (true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, 1023);
+                    for (Event event : batch) {
+                        if (END == event) {
+                            writer.close();
+                            return;
+                        }
+                        writer.write(event.toString());
+                        writer.newLine();
+                    }
+                    batch.clear();
+                }
+            } catch (Throwable t) {
+                failure = t;
+                if (t instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // already failed
+                }
+            }
+        }
+
+        void close() {
+            add(END);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (null != failure) {
+                System.out.println("Failed to write audit file: "
+                        + ((null == failure.getMessage()) ? failure.toString() : failure.getMessage()));
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package nascar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import nascar.Pool.Player;
+import nascar.Pool.Players;
+
+// Season head to head records: for every pair of players, how many races each outscored the other on weekly
+// points, and how many they tied. wins[a][b] counts the races a beat b, a byte each, so a pair costs two bytes and
+// the losses of a are the column wins[..][a]; which races a player entered is a bitset, and a tie is a race both
+// entered that neither won. Indexing a race adds its n entrants' wins against every player in one pass of
+// fork-join leaves, each sweeping its rows over a block of the race's points column at a time so the block stays
+// in cache. Like SeasonIndex a race is (re)indexed only when it was (re)scored: a replaced race is subtracted with
+// the same kernel, from the points column kept for it.
+class Rivalries {
+    static final int MAX_RACES = 255;
+    static final int LEAF = 64;
+    // points columns a tile spans, 32KB of ints
+    static final int BLOCK = 8192;
+    private static final int ABSENT = Integer.MAX_VALUE;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private int capacity = 16;
+    private byte[][] wins = new byte[capacity][];
+    private long[][] played = new long[capacity][];
+    private int races;
+    // by slot: the race's points by player id, ABSENT for players who sat it out
+    private int[][] columns = new int[8][];
+    private long[] versions = new long[8];
+
+    public int getRaces() {
+        return races;
+    }
+
+    public int getPlayers() {
+        return names.size();
+    }
+
+    // Indexes the race scored at version into slot, the 0 based position in the season, as SeasonIndex.put.
+    boolean put(int slot, long version, Players players) {
+        if (slot > races) {
+            throw new IllegalArgumentException("Race " + (slot + 1) + " indexed before the races ahead of it");
+        }
+        if (slot >= MAX_RACES) {
+            throw new IllegalArgumentException("Head to head records only count " + MAX_RACES + " races");
+        }
+        if (slot < races) {
+            if (versions[slot] == version) {
+                return false;
+            }
+            update(slot, -1);
+        } else {
+            if (slot == columns.length) {
+                columns = Arrays.copyOf(columns, 2 * slot);
+                versions = Arrays.copyOf(versions, 2 * slot);
+            }
+            ++races;
+        }
+
+        List<Player> list = players.getPlayers();
+        int[] entrants = new int[list.size()];
+        for (int i = 0; i < entrants.length; ++i) {
+            entrants[i] = id(list.get(i).getName());
+        }
+        int[] column = new int[capacity];
+        Arrays.fill(column, ABSENT);
+        for (int i = 0; i < entrants.length; ++i) {
+            column[entrants[i]] = list.get(i).getPoints();
+        }
+        columns[slot] = column;
+        versions[slot] = version;
+        update(slot, 1);
+        return true;
+    }
+
+    // drops the races from slot on
+    void truncate(int slot) {
+        while (races > slot) {
+            update(--races, -1);
+            columns[races] = null;
+            versions[races] = 0;
+        }
+    }
+
+    // adds (delta 1) or subtracts (-1) the race in slot
+    private void update(int slot, int delta) {
+        int[] column = columns[slot];
+        int n = names.size();
+        int entrants = 0;
+        for (int id = 0; id < n; ++id) {
+            if (ABSENT != column[id]) {
+                ++entrants;
+            }
+        }
+        int[] rows = new int[entrants];
+        for (int id = 0, i = 0; id < n; ++id) {
+            if (ABSENT != column[id]) {
+                rows[i++] = id;
+                if (delta > 0) {
+                    played[id][slot >> 6] |= 1L << slot;
+                } else {
+                    played[id][slot >> 6] &= ~(1L << slot);
+                }
+            }
+        }
+        Tile tile = new Tile(wins, column, rows, n, (byte) delta, 0, rows.length);
+        if (rows.length <= LEAF) {
+            tile.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(tile);
+        }
+    }
+
+    private int id(String name) {
+        Integer id = ids.get(name);
+        if (null != id) {
+            return id;
+        }
+        id = names.size();
+        ids.put(name, id);
+        names.add(name);
+        if (id == capacity) {
+            grow(2 * capacity);
+        }
+        wins[id] = new byte[capacity];
+        played[id] = new long[(MAX_RACES >> 6) + 1];
+        return id;
+    }
+
+    // every row, and the points columns kept for replaced races, gets room for capacity players
+    private void grow(int capacity) {
+        int before = this.capacity;
+        this.capacity = capacity;
+        wins = Arrays.copyOf(wins, capacity);
+        played = Arrays.copyOf(played, capacity);
+        for (int id = 0; id < before; ++id) {
+            wins[id] = Arrays.copyOf(wins[id], capacity);
+        }
+        for (int r = 0; r < races; ++r) {
+            if (null != columns[r]) {
+                columns[r] = Arrays.copyOf(columns[r], capacity);
+                Arrays.fill(columns[r], before, capacity, ABSENT);
+            }
+        }
+    }
+
+    // One fork-join leaf's rows (entrants) against every player, a block of columns at a time.
+    private static class Tile extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[][] wins;
+        private final int[] column;
+        private final int[] rows;
+        private final int players;
+        private final byte delta;
+        private final int from;
+        private final int to;
+
+        Tile(byte[][] wins, int[] column, int[] rows, int players, byte delta, int from, int to) {
+            this.wins = wins;
+            this.column = column;
+            this.rows = rows;
+            this.players = players;
+            this.delta = delta;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF) {
+                for (int j0 = 0; j0 < players; j0 += BLOCK) {
+                    int j1 = Math.min(players, j0 + BLOCK);
+                    for (int i = from; i < to; ++i) {
+                        byte[] row = wins[rows[i]];
+                        int points = column[rows[i]];
+                        // an absent player's ABSENT is never beaten
+                        for (int j = j0; j < j1; ++j) {
+                            row[j] += (column[j] < points) ? delta : 0;
+                        }
+                    }
+                }
+                return;
+            }
+            int mid = from + Math.max(1, (to - from) / LEAF / 2) * LEAF;
+            invokeAll(new Tile(wins, column, rows, players, delta, from, mid),
+                    new Tile(wins, column, rows, players, delta, mid, to));
+        }
+    }
+
+    private int player(String name) {
+        Integer id = ids.get(name);
+        if (null == id) {
+            throw new IllegalArgumentException("No such player: " + name);
+        }
+        return id;
+    }
+
+    private int met(int a, int b) {
+        int met = 0;
+        for (int w = 0; w < played[a].length; ++w) {
+            met += Long.bitCount(played[a][w] & played[b][w]);
+        }
+        return met;
+    }
+
+    // wins, losses and ties of player against opponent
+    public int[] record(String player, String opponent) {
+        int a = player(player);
+        int b = player(opponent);
+        int won = wins[a][b] & 0xff;
+        int lost = wins[b][a] & 0xff;
+        return new int[] { won, lost, met(a, b) - won - lost };
+    }
+
+    // the k opponents a player met with the closest records, most meetings first among equally close ones
+    public List<String> rivals(String player, int k) {
+        int a = player(player);
+        int n = names.size();
+        byte[] lost = new byte[n];
+        for (int b = 0; b < n; ++b) {
+            lost[b] = wins[b][a];
+        }
+        return rivals(a, lost, new long[n], k);
+    }
+
+    private List<String> rivals(int a, byte[] lost, long[] keys, int k) {
+        int n = names.size();
+        for (int b = 0; b < n; ++b) {
+            int met = (a == b) ? 0 : met(a, b);
+            int won = wins[a][b] & 0xff;
+            int l = lost[b] & 0xff;
+            keys[b] = (0 == met) ? Long.MAX_VALUE
+                    : ((long) Math.abs(won - l) << 40) | ((long) (MAX_RACES - met) << 32) | b;
+        }
+        List<String> rivals = new ArrayList<>(k);
+        for (int b : Ranking.top(keys, 0, n, k)) {
+            if (Long.MAX_VALUE != keys[b]) {
+                int won = wins[a][b] & 0xff;
+                int l = lost[b] & 0xff;
+                rivals.add(names.get(b) + " " + won + "-" + l + "-" + (met(a, b) - won - l));
+            }
+        }
+        return rivals;
+    }
+
+    // "<player>: <rival> W-L-T, ..." for every player, the losses gathered a block of players at a time so the
+    // column reads stay in cache lines
+    List<String> lines(int k) {
+        int n = names.size();
+        String[] lines = new String[n];
+        ForkJoinPool.commonPool().invoke(new Export(lines, k, 0, n));
+        return Arrays.asList(lines);
+    }
+
+    private class Export extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] lines;
+        private final int k;
+        private final int from;
+        private final int to;
+
+        Export(String[] lines, int k, int from, int to) {
+            this.lines = lines;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF) {
+                int n = names.size();
+                byte[][] lost = new byte[to - from][n];
+                for (int b = 0; b < n; ++b) {
+                    byte[] row = wins[b];
+                    for (int a = from; a < to; ++a) {
+                        lost[a - from][b] = row[a];
+                    }
+                }
+                long[] keys = new long[n];
+                for (int a = from; a < to; ++a) {
+                    lines[a] = names.get(a) + ": " + String.join(", ", rivals(a, lost[a - from], keys, k));
+                }
+                return;
+            }
+            int mid = from + Math.max(1, (to - from) / LEAF / 2) * LEAF;
+            invokeAll(new Export(lines, k, from, mid), new Export(lines, k, mid, to));
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package nascar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import nascar.Pool.Results;
+
+// A pool's scoring and payout rules, read from a properties file and compiled once into lookup tables, so scoring
+// a race is a table lookup per car and a player's points stay a plain sum of four ints whatever the rules are.
+// Every key is optional, the defaults are the rules the pool has always used:
+//
+//   ante=5                 what every player pays each race, unless paid a place
+//   payouts=15,10,5        what places 1, 2, 3... are paid instead
+//   payouts.<n>=20,12,8,5  the payouts for pools of at least n players, the largest n that fits wins
+//   frontrow.bonus=1       the qualifying bonus for a car starting below frontrow.starts, unless canceled
+//   frontrow.starts=3
+//   start.bonus.<n>=2      the qualifying bonus for start position n, overriding the front row
+//   finish.bonus.<n>=3     a bonus for finish position n
+//   dnq.points=0           what a car that didn't qualify scores
+//   pickswap.from=5        from this place on, a tie with the next place swaps them for pick preference
+class Rules {
+    static final String FILE = "rules.properties";
+    static final Rules DEFAULT = new Rules("default", new Properties());
+
+    private static final int POSITIONS = Results.CARS;
+
+    private final String name;
+    private final int ante;
+    private final int[] startBonus = new int[POSITIONS];
+    private final int[] finishBonus = new int[POSITIONS];
+    private final int dnqPoints;
+    private final int pickSwapFrom;
+    // pool sizes ascending, and the payouts of each
+    private final int[] tiers;
+    private final int[][] payouts;
+    private final int places;
+
+    Rules(String name, Properties p) {
+        this.name = name;
+        this.ante = intValue(p, "ante", 5);
+        this.dnqPoints = intValue(p, "dnq.points", 0);
+        this.pickSwapFrom = intValue(p, "pickswap.from", 5);
+        if (pickSwapFrom < 1) {
+            // each place swaps with the one above it, so there has to be one
+            throw new IllegalArgumentException("Invalid place for rule [pickswap.from]: " + pickSwapFrom);
+        }
+
+        int frontRowBonus = intValue(p, "frontrow.bonus", 1);
+        int frontRowStarts = Math.min(POSITIONS, Math.max(0, intValue(p, "frontrow.starts", 3)));
+        Arrays.fill(startBonus, 0, frontRowStarts, frontRowBonus);
+
+        TreeMap<Integer, int[]> byPoolSize = new TreeMap<>();
+        byPoolSize.put(0, amounts("payouts", p.getProperty("payouts", "15,10,5")));
+        for (String key : p.stringPropertyNames()) {
+            if (key.startsWith("start.bonus.")) {
+                startBonus[position(key, "start.bonus.")] = intValue(p, key, 0);
+            } else if (key.startsWith("finish.bonus.")) {
+                finishBonus[position(key, "finish.bonus.")] = intValue(p, key, 0);
+            } else if (key.startsWith("payouts.")) {
+                byPoolSize.put(number(key, key.substring("payouts.".length())), amounts(key, p.getProperty(key)));
+            } else if (!key.equals("ante") && !key.equals("payouts") && !key.equals("frontrow.bonus")
+                    && !key.equals("frontrow.starts") && !key.equals("dnq.points") && !key.equals("pickswap.from")) {
+                throw new IllegalArgumentException("Unknown rule [" + key + "] in rules " + name);
+            }
+        }
+
+        this.tiers = new int[byPoolSize.size()];
+        this.payouts = new int[byPoolSize.size()][];
+        int i = 0;
+        int places = 0;
+        for (int size : byPoolSize.keySet()) {
+            tiers[i] = size;
+            payouts[i] = byPoolSize.get(size);
+            places = Math.max(places, payouts[i].length);
+            ++i;
+        }
+        this.places = places;
+    }
+
+    // dir's rules.properties, or the default rules when it has none
+    static Rules load(File dir) {
+        File file = new File(dir, FILE);
+        return file.exists() ? read(file) : DEFAULT;
+    }
+
+    static Rules read(File file) {
+        if (!file.canRead()) {
+            throw new IllegalArgumentException("Can't read rules file: " + file.getAbsolutePath());
+        }
+        Properties p = new Properties();
+        try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            p.load(in);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+        return new Rules(file.getName(), p);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAnte() {
+        return ante;
+    }
+
+    public int getPickSwapFrom() {
+        return pickSwapFrom;
+    }
+
+    // the most places any pool size pays, so how many of the top players scoring has to find
+    public int getPlaces() {
+        return places;
+    }
+
+    // what places 1, 2, 3... are paid in a pool of this many players
+    public int[] getPayouts(int players) {
+        int i = tiers.length - 1;
+        while (i > 0 && tiers[i] > players) {
+            --i;
+        }
+        return payouts[i];
+    }
+
+    // weekly points for each car: car points plus the bonuses, dnq.points for a car that didn't qualify
+    public int[] scores(Results results, boolean qualifyingCanceled) {
+        int[] scores = new int[Results.CARS];
+        for (int car = 0; car < Results.CARS; ++car) {
+            if (!results.isQualified(car)) {
+                scores[car] = dnqPoints;
+                continue;
+            }
+            scores[car] = results.getPoints(car) + bonus(finishBonus, results.getFinish(car))
+                    + (qualifyingCanceled ? 0 : bonus(startBonus, results.getStart(car)));
+        }
+        return scores;
+    }
+
+    private static int bonus(int[] table, int position) {
+        return (position >= 0 && position < table.length) ? table[position] : 0;
+    }
+
+    private static int intValue(Properties p, String key, int defaultValue) {
+        String value = p.getProperty(key);
+        return (null == value) ? defaultValue : number(key, value);
+    }
+
+    private static int number(String key, String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for rule [" + key + "]: " + value);
+        }
+    }
+
+    private static int position(String key, String prefix) {
+        int position = number(key, key.substring(prefix.length()));
+        if (position < 0 || position >= POSITIONS) {
+            throw new IllegalArgumentException("Invalid position for rule [" + key + "]");
+        }
+        return position;
+    }
+
+    private static int[] amounts(String key, String value) {
+        String[] parts = value.split(",");
+        int[] amounts = new int[parts.length];
+        for (int i = 0; i < parts.length; ++i) {
+            amounts[i] = number(key, parts[i]);
+        }
+        return amounts;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,143 @@
+package nascar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nascar.Pool.Player;
+import nascar.Pool.Players;
+import nascar.Pool.Results;
+import nascar.Pool.Standing;
+import nascar.Pool.Standings;
+
+// Scores one season under several rule sets in a single pass over its files. Each race's picks and results are
+// parsed once; every rule set then scores the race through Players.applyResults, the pool's own scoring, from its
+// own totals and balances arrays, so a proposed rule change can be judged against the whole season at once.
+class RulesComparison {
+    private final Season season;
+    private final List<Rules> variants;
+    private final ParseCache cache = new ParseCache();
+    private final Map<String, Integer> index = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private int[][] totals;
+    private int[][] balances;
+    private int completed;
+
+    RulesComparison(Season season, List<Rules> variants) {
+        this.season = season;
+        this.variants = variants;
+        this.totals = new int[variants.size()][16];
+        this.balances = new int[variants.size()][16];
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    void run(Set<Integer> canceled) {
+        List<Season.Race> races = season.getRaces();
+        if (races.isEmpty()) {
+            throw new IllegalArgumentException("No picks/results files found in: " + season.dir.getAbsolutePath());
+        }
+        Season.Race first = races.get(0);
+        if (first.getStandingsFile().canRead()) {
+            for (Standing s : ((Standings) cache.standings(first.getStandingsFile()).value).getTotals().values()) {
+                int player = player(s.getPlayer());
+                for (int v = 0; v < variants.size(); ++v) {
+                    totals[v][player] = s.getTotal();
+                    balances[v][player] = s.getBalance();
+                }
+            }
+        }
+
+        completed = 0;
+        for (Season.Race race : races) {
+            Results results = (Results) cache.results(race.getResultsFile()).value;
+            if (results.size() == 0) {
+                Report.info("Race " + race + " has no results yet, stopping.");
+                break;
+            }
+            // one scratch copy of the parse for the race, started over for every rule set
+            Players players = ((Players) cache.players(race.getPicksFile()).value).copy();
+            List<Player> list = players.getPlayers();
+            int n = list.size();
+            int[] ids = new int[n];
+            for (int i = 0; i < n; ++i) {
+                ids[i] = player(list.get(i).getName());
+            }
+
+            boolean qualifyingCanceled = canceled.contains(race.getNumber());
+            for (int v = 0; v < variants.size(); ++v) {
+                int[] total = totals[v];
+                int[] balance = balances[v];
+                for (int i = 0; i < n; ++i) {
+                    Player p = list.get(i);
+                    p.setPoints(0);
+                    p.setTotal(total[ids[i]]);
+                    p.setBalance(balance[ids[i]]);
+                }
+                players.applyResults(results, qualifyingCanceled, variants.get(v), false);
+                for (int i = 0; i < n; ++i) {
+                    total[ids[i]] = list.get(i).getTotal();
+                    balance[ids[i]] = list.get(i).getBalance();
+                }
+            }
+            ++completed;
+        }
+    }
+
+    private int player(String name) {
+        Integer player = index.get(name);
+        if (null != player) {
+            return player;
+        }
+        player = names.size();
+        index.put(name, player);
+        names.add(name);
+        if (player == totals[0].length) {
+            for (int v = 0; v < variants.size(); ++v) {
+                totals[v] = Arrays.copyOf(totals[v], 2 * player);
+                balances[v] = Arrays.copyOf(balances[v], 2 * player);
+            }
+        }
+        return player;
+    }
+
+    // every player's place, total and balance under each rule set, in the order of the first
+    List<String> lines() {
+        Integer[] order = new Integer[names.size()];
+        for (int p = 0; p < order.length; ++p) {
+            order[p] = p;
+        }
+        Arrays.sort(order, Comparator.comparingInt(p -> -totals[0][p]));
+        int[][] places = new int[variants.size()][names.size()];
+        for (int v = 0; v < variants.size(); ++v) {
+            int[] total = totals[v];
+            Integer[] byTotal = order.clone();
+            Arrays.sort(byTotal, Comparator.comparingInt(p -> -total[p]));
+            for (int i = 0; i < byTotal.length; ++i) {
+                places[v][byTotal[i]] = i + 1;
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        StringBuilder header = new StringBuilder(String.format("%-15s", "Player"));
+        for (Rules rules : variants) {
+            header.append(String.format("  %-16s", rules.getName()));
+        }
+        lines.add(header.toString().stripTrailing());
+        for (int p : order) {
+            StringBuilder sb = new StringBuilder(String.format("%-15s", names.get(p)).replace(' ', '.'));
+            for (int v = 0; v < variants.size(); ++v) {
+                sb.append(String.format("  #%-3d%5d%7s", places[v][p], totals[v][p],
+                        Standing.balanceString(balances[v][p])));
+            }
+            lines.add(sb.toString());
+        }
+        return lines;
+    }
+}
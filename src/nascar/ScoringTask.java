@@ -0,0 +1,100 @@
+package nascar;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import nascar.Pool.Players;
+import nascar.Pool.Results;
+
+// Scores a large pool in fork-join shards. Every shard reads the same per-car scores, writes only its own players
+// and keys, and hands back its top candidates, which are merged left to right. Audit events are buffered per
+// shard and reported in shard order, so the audit matches the sequential path line for line. Shards run with the
+// caller's Report stream, so a league scored on its own thread keeps its lines whichever worker scores them.
+class ScoringTask extends RecursiveTask<int[]> {
+    private static final long serialVersionUID = 1L;
+
+    // pools smaller than this are scored on the calling thread
+    static final int THRESHOLD = Integer.getInteger("nascar.parallelThreshold", 50000);
+    static final int SHARD = 4096;
+
+    private final Players players;
+    private final Results results;
+    private final int[] scores;
+    private final long[] keys;
+    private final int places;
+    private final List<List<Report.Event>> audit;
+    private final PrintStream out;
+    private final int from;
+    private final int to;
+
+    private ScoringTask(Players players, Results results, int[] scores, long[] keys, int places,
+            List<List<Report.Event>> audit, PrintStream out, int from, int to) {
+        this.players = players;
+        this.results = results;
+        this.scores = scores;
+        this.keys = keys;
+        this.places = places;
+        this.audit = audit;
+        this.out = out;
+        this.from = from;
+        this.to = to;
+    }
+
+    static int[] score(Players players, Results results, int[] scores, long[] keys, int places, boolean audited) {
+        int size = players.getPlayers().size();
+        List<List<Report.Event>> audit = null;
+        if (audited) {
+            audit = new ArrayList<>();
+            for (int i = 0; i < size; i += SHARD) {
+                audit.add(null);
+            }
+        }
+
+        int[] top = ForkJoinPool.commonPool()
+                .invoke(new ScoringTask(players, results, scores, keys, places, audit, Report.getOut(), 0, size));
+
+        if (audited) {
+            for (List<Report.Event> events : audit) {
+                events.forEach(e -> Report.audit(e));
+            }
+        }
+        return top;
+    }
+
+    @Override
+    protected int[] compute() {
+        PrintStream previous = Report.getOut();
+        if (out == previous) {
+            return shard();
+        }
+        Report.setOut(out);
+        try {
+            return shard();
+        } finally {
+            Report.setOut(previous);
+        }
+    }
+
+    private int[] shard() {
+        if (to - from <= SHARD) {
+            if (null == audit) {
+                return players.score(from, to, results, scores, keys, places, null);
+            }
+            List<Report.Event> events = new ArrayList<>();
+            int[] top = players.score(from, to, results, scores, keys, places, e -> events.add(e));
+            audit.set(from / SHARD, events);
+            return top;
+        }
+
+        // split on a shard boundary so every leaf owns exactly one audit slot
+        int mid = from + Math.max(1, (to - from) / SHARD / 2) * SHARD;
+        ScoringTask left = new ScoringTask(players, results, scores, keys, places, audit, out, from, mid);
+        ScoringTask right = new ScoringTask(players, results, scores, keys, places, audit, out, mid, to);
+        right.fork();
+        int[] leftTop = left.compute();
+        return Ranking.merge(keys, leftTop, right.join(), places);
+    }
+}
@@ -0,0 +1,347 @@
+package nascar;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import nascar.Pool.Players;
+import nascar.Pool.Results;
+import nascar.Pool.Standings;
+
+// Replays every race in a directory in one run, carrying standings in memory from race to race. Files are parsed
+// through a ParseCache and every race remembers what it was scored from, so replaying the same Season again only
+// recomputes (and rewrites the standings after) the first race whose inputs changed and the races after it.
+class Season {
+    File dir;
+    private final ParseCache cache;
+    private Rules rules;
+    private final Map<String, Scored> scored = new HashMap<>();
+    private final SeasonIndex index = new SeasonIndex();
+    private Rivalries rivalries;
+    private List<Race> races = new ArrayList<>();
+    private int recomputed;
+    private int completed;
+    private List<Results> results = new ArrayList<>();
+    private List<int[]> scores = new ArrayList<>();
+    private Players lastPlayers;
+    private File snapshot;
+    private File ledgerFile;
+
+    Season(File dir) {
+        this(dir, new ParseCache());
+    }
+
+    Season(File dir, ParseCache cache) {
+        this.dir = dir;
+        this.cache = cache;
+        process();
+        this.rules = Rules.load(dir);
+    }
+
+    // picks up races added to (or removed from) the directory since the last scan
+    public void rescan() {
+        races.clear();
+        process();
+    }
+
+    private void process() {
+        if (!dir.isDirectory()) {
+            throw new IllegalArgumentException("Can't read season directory: " + dir.getAbsolutePath());
+        }
+
+        for (File f : dir.listFiles()) {
+            String name = f.getName();
+            if (!name.endsWith("-picks.txt") || name.endsWith("-raw-picks.txt")) {
+                continue;
+            }
+            int dash = name.indexOf('-');
+            if (dash < 1 || !name.substring(0, dash).chars().allMatch(Character::isDigit)) {
+                continue;
+            }
+            String raceNum = name.substring(0, dash);
+            String track = name.substring(dash + 1, name.length() - "-picks.txt".length());
+            File resultsFile = new File(dir, raceNum + "-" + track + "-results.txt");
+            if (resultsFile.canRead()) {
+                races.add(new Race(raceNum, track));
+            }
+        }
+
+        races.sort(new Comparator<Race>() {
+            public int compare(Race o1, Race o2) {
+                return Integer.compare(o1.getNumber(), o2.getNumber());
+            }
+        });
+    }
+
+    public List<Race> getRaces() {
+        return races;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    // how many of the completed races the last replay actually had to score
+    public int getRecomputed() {
+        return recomputed;
+    }
+
+    // the directory's rules.properties unless set, changing them rescores every race
+    public Rules getRules() {
+        return rules;
+    }
+
+    public void setRules(Rules rules) {
+        this.rules = rules;
+        scored.clear();
+    }
+
+    // when set, replay also writes the season as a binary snapshot
+    public void setSnapshot(File snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    // when set, replay also records every race it scores in this ledger, and takes opening balances from it
+    public void setLedger(File ledgerFile) {
+        this.ledgerFile = ledgerFile;
+    }
+
+    // the results of each completed race of the last replay
+    public List<Results> getResults() {
+        return results;
+    }
+
+    // the per-car points paid by each completed race of the last replay
+    public List<int[]> getScores() {
+        return scores;
+    }
+
+    // when set, replay also keeps head to head records, two bytes per pair of players
+    public void setRivalries(Rivalries rivalries) {
+        this.rivalries = rivalries;
+    }
+
+    public Rivalries getRivalries() {
+        return rivalries;
+    }
+
+    // the picks of the last completed race of the last replay
+    public Players getLastPlayers() {
+        return lastPlayers;
+    }
+
+    // every completed race of the last (heap) replay, for queries
+    public SeasonIndex getIndex() {
+        return index;
+    }
+
+    // write == null means write the standings file of every race. Standings files are only written after a race
+    // that was (re)scored, the others are already on disk.
+    public Standings replay(Set<Integer> canceled, Set<Integer> write) throws IOException {
+        if (races.isEmpty()) {
+            throw new IllegalArgumentException("No picks/results files found in: " + dir.getAbsolutePath());
+        }
+
+        Ledger ledger = (null == ledgerFile) ? null : new Ledger(ledgerFile);
+        try {
+            return replay(canceled, write, ledger);
+        } finally {
+            Pool.closeLedger(ledger);
+        }
+    }
+
+    private Standings replay(Set<Integer> canceled, Set<Integer> write, Ledger ledger) throws IOException {
+        Race first = races.get(0);
+        Standings standings;
+        long upstream;
+        if (first.getStandingsFile().canRead()) {
+            ParseCache.Entry entry = cache.standings(first.getStandingsFile());
+            standings = ((Standings) entry.value).copy();
+            upstream = entry.version;
+        } else {
+            standings = new Standings();
+            upstream = 0;
+        }
+        if (null != ledger) {
+            ledger.open(first.getNumber(), standings);
+            if (ledger.restore(first.getNumber(), standings)) {
+                upstream = ParseCache.nextVersion();
+            }
+        }
+        Snapshot.Builder history = (null == snapshot) ? null : new Snapshot.Builder(standings);
+        completed = 0;
+        recomputed = 0;
+        this.results.clear();
+        scores.clear();
+        lastPlayers = null;
+        boolean changed = false;
+
+        for (Race race : races) {
+            if (changed && (null == write || write.contains(race.getNumber()))) {
+                standings.write(race.getStandingsFile());
+            }
+
+            ParseCache.Entry resultsEntry = cache.results(race.getResultsFile());
+            Results results = (Results) resultsEntry.value;
+            if (results.size() == 0) {
+                Report.info("Race " + race + " has no results yet, stopping.");
+                break;
+            }
+
+            ParseCache.Entry picksEntry = cache.players(race.getPicksFile());
+            boolean qualifyingCanceled = canceled.contains(race.getNumber());
+            Scored s = scored.get(race.toString());
+            changed = null == s || !s.isFrom(picksEntry.version, resultsEntry.version, qualifyingCanceled, upstream);
+            if (changed) {
+                Players players = ((Players) picksEntry.value).copy();
+                for (Pool.Player p : players.getPlayers()) {
+                    standings.getTotals().putIfAbsent(p.getName(), new Pool.Standing(p.getName(), 0, 0));
+                }
+                players.applyStandings(standings);
+                int[] balances = Ledger.balances(players);
+                players.applyResults(results, qualifyingCanceled, rules);
+                if (null != ledger) {
+                    ledger.record(race.getNumber(), players, balances);
+                }
+                standings.update(players);
+                s = new Scored(picksEntry.version, resultsEntry.version, qualifyingCanceled, upstream, players,
+                        standings.copy(), rules.scores(results, qualifyingCanceled));
+                scored.put(race.toString(), s);
+                ++recomputed;
+            } else {
+                standings = s.standings.copy();
+            }
+            upstream = s.version;
+
+            this.results.add(results);
+            scores.add(s.scores);
+            lastPlayers = s.players;
+            if (null != history) {
+                history.add(race.getNumber(), race.getTrack(), s.players, standings);
+            }
+            index.put(completed, s.version, race.getNumber(), race.getTrack(), s.players, results);
+            if (null != rivalries) {
+                rivalries.put(completed, s.version, s.players);
+            }
+            ++completed;
+        }
+        index.truncate(completed);
+        if (null != rivalries) {
+            rivalries.truncate(completed);
+        }
+
+        if (null != history && (recomputed > 0 || !snapshot.exists())) {
+            history.write(snapshot);
+        }
+
+        return standings;
+    }
+
+    // Replays into an off-heap PlayerStore instead, for pools too big to keep as objects. Nothing is cached
+    // between replays, every race is scored and the standings after it written as write allows.
+    public PlayerStore replayOffHeap(Set<Integer> canceled, Set<Integer> write) throws IOException {
+        if (races.isEmpty()) {
+            throw new IllegalArgumentException("No picks/results files found in: " + dir.getAbsolutePath());
+        }
+
+        PlayerStore store = new PlayerStore();
+        Race first = races.get(0);
+        if (first.getStandingsFile().canRead()) {
+            store.loadStandings(first.getStandingsFile());
+        }
+        completed = 0;
+        recomputed = 0;
+        this.results.clear();
+        scores.clear();
+        lastPlayers = null;
+
+        for (Race race : races) {
+            if (completed > 0 && (null == write || write.contains(race.getNumber()))) {
+                store.writeStandings(race.getStandingsFile());
+            }
+
+            Results results = (Results) cache.results(race.getResultsFile()).value;
+            if (results.size() == 0) {
+                Report.info("Race " + race + " has no results yet, stopping.");
+                break;
+            }
+
+            boolean qualifyingCanceled = canceled.contains(race.getNumber());
+            store.loadPicks(race.getPicksFile());
+            store.applyResults(results, qualifyingCanceled, rules);
+            this.results.add(results);
+            scores.add(rules.scores(results, qualifyingCanceled));
+            ++recomputed;
+            ++completed;
+        }
+        return store;
+    }
+
+    // A scored race: what it was scored from, and what scoring it produced.
+    private static class Scored {
+        final long version = ParseCache.nextVersion();
+        final long picks;
+        final long results;
+        final boolean qualifyingCanceled;
+        final long upstream;
+        final Players players;
+        final Standings standings;
+        final int[] scores;
+
+        Scored(long picks, long results, boolean qualifyingCanceled, long upstream, Players players,
+                Standings standings, int[] scores) {
+            this.picks = picks;
+            this.results = results;
+            this.qualifyingCanceled = qualifyingCanceled;
+            this.upstream = upstream;
+            this.players = players;
+            this.standings = standings;
+            this.scores = scores;
+        }
+
+        boolean isFrom(long picks, long results, boolean qualifyingCanceled, long upstream) {
+            return this.picks == picks && this.results == results && this.qualifyingCanceled == qualifyingCanceled
+                    && this.upstream == upstream;
+        }
+    }
+
+    class Race {
+        String raceNum;
+        String track;
+
+        Race(String raceNum, String track) {
+            this.raceNum = raceNum;
+            this.track = track;
+        }
+
+        public int getNumber() {
+            return Integer.valueOf(raceNum);
+        }
+
+        public String getTrack() {
+            return track;
+        }
+
+        public File getPicksFile() {
+            return new File(dir, raceNum + "-" + track + "-picks.txt");
+        }
+
+        public File getResultsFile() {
+            return new File(dir, raceNum + "-" + track + "-results.txt");
+        }
+
+        public File getStandingsFile() {
+            return new File(dir, raceNum + "-" + track + "-standings.txt");
+        }
+
+        @Override
+        public String toString() {
+            return raceNum + "-" + track;
+        }
+    }
+}
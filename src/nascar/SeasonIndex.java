@@ -0,0 +1,360 @@
+package nascar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nascar.Pool.Player;
+import nascar.Pool.Players;
+import nascar.Pool.Results;
+
+// The season so far in memory, for answering questions about it without going back to the files: every player's
+// picks and points race by race, every car's finish, start and points race by race, and for each race and car the
+// set of players who picked it. Season fills it in as it scores races, a race is only (re)indexed when it was
+// (re)scored, and running totals are kept as races come and go so the usual questions are a lookup or a short scan.
+class SeasonIndex {
+    private static final byte NONE = -1;
+    private static final int CARS = Results.CARS;
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private int races;
+    private int[] raceNums = new int[8];
+    private String[] tracks = new String[8];
+    private long[] versions = new long[8];
+
+    // by player: 4 cars a race (NONE for a race sat out) and the points scored
+    private byte[][] picks = new byte[16][];
+    private int[][] points = new int[16][];
+    // by car: finish, start and points a race, Results.DNQ when not in the field
+    private final int[][] finish = new int[CARS][8];
+    private final int[][] start = new int[CARS][8];
+    private final int[][] carPoints = new int[CARS][8];
+    // by race and car, null when nobody picked it
+    private BitSet[][] pickers = new BitSet[8][];
+
+    private final int[] timesPicked = new int[CARS];
+    private long[] finishSums = new long[16];
+    private int[] finishCounts = new int[16];
+
+    public int getRaces() {
+        return races;
+    }
+
+    public int getPlayers() {
+        return names.size();
+    }
+
+    // Indexes the race scored at version into slot, the 0 based position in the season. Slots fill in order; a slot
+    // already holding that version is left alone, one holding an older scoring is replaced.
+    boolean put(int slot, long version, int raceNum, String track, Players players, Results results) {
+        if (slot > races) {
+            throw new IllegalArgumentException("Race " + raceNum + " indexed before the races ahead of it");
+        }
+        if (slot < races) {
+            if (versions[slot] == version) {
+                return false;
+            }
+            remove(slot);
+        } else {
+            grow(slot + 1);
+            ++races;
+        }
+
+        raceNums[slot] = raceNum;
+        tracks[slot] = track;
+        versions[slot] = version;
+        for (int c = 0; c < CARS; ++c) {
+            finish[c][slot] = results.getFinish(c);
+            start[c][slot] = results.getStart(c);
+            carPoints[c][slot] = results.getPoints(c);
+        }
+
+        BitSet[] picked = new BitSet[CARS];
+        for (Player p : players.getPlayers()) {
+            int id = id(p.getName());
+            byte[] row = row(id, slot);
+            int[] cars = p.getPicks();
+            for (int i = 0; i < 4; ++i) {
+                int c = cars[i];
+                row[4 * slot + i] = (byte) c;
+                if (null == picked[c]) {
+                    picked[c] = new BitSet(names.size());
+                }
+                picked[c].set(id);
+                ++timesPicked[c];
+                if (results.isQualified(c)) {
+                    finishSums[id] += results.getFinish(c);
+                    ++finishCounts[id];
+                }
+            }
+            points[id][slot] = p.getPoints();
+        }
+        pickers[slot] = picked;
+        return true;
+    }
+
+    // drops the races from slot on, once the season has fewer completed races than were indexed
+    void truncate(int slot) {
+        while (races > slot) {
+            remove(--races);
+        }
+    }
+
+    private void remove(int slot) {
+        BitSet played = new BitSet(names.size());
+        for (BitSet b : pickers[slot]) {
+            if (null != b) {
+                played.or(b);
+            }
+        }
+        // by the picks rows rather than the bitsets, a car picked twice was counted twice
+        for (int id = played.nextSetBit(0); id >= 0; id = played.nextSetBit(id + 1)) {
+            for (int i = 4 * slot; i < 4 * slot + 4; ++i) {
+                int c = picks[id][i];
+                --timesPicked[c];
+                if (Results.DNQ != finish[c][slot]) {
+                    finishSums[id] -= finish[c][slot];
+                    --finishCounts[id];
+                }
+            }
+            Arrays.fill(picks[id], 4 * slot, 4 * slot + 4, NONE);
+            points[id][slot] = 0;
+        }
+        pickers[slot] = null;
+        versions[slot] = 0;
+    }
+
+    private void grow(int capacity) {
+        if (capacity <= raceNums.length) {
+            return;
+        }
+        int n = Math.max(capacity, 2 * raceNums.length);
+        raceNums = Arrays.copyOf(raceNums, n);
+        tracks = Arrays.copyOf(tracks, n);
+        versions = Arrays.copyOf(versions, n);
+        pickers = Arrays.copyOf(pickers, n);
+        for (int c = 0; c < CARS; ++c) {
+            finish[c] = Arrays.copyOf(finish[c], n);
+            start[c] = Arrays.copyOf(start[c], n);
+            carPoints[c] = Arrays.copyOf(carPoints[c], n);
+        }
+    }
+
+    private int id(String name) {
+        Integer id = ids.get(name);
+        if (null != id) {
+            return id;
+        }
+        id = names.size();
+        ids.put(name, id);
+        names.add(name);
+        if (id == picks.length) {
+            picks = Arrays.copyOf(picks, 2 * id);
+            points = Arrays.copyOf(points, 2 * id);
+            finishSums = Arrays.copyOf(finishSums, 2 * id);
+            finishCounts = Arrays.copyOf(finishCounts, 2 * id);
+        }
+        picks[id] = new byte[0];
+        points[id] = new int[0];
+        return id;
+    }
+
+    // the player's picks row, long enough for slot
+    private byte[] row(int id, int slot) {
+        if (picks[id].length < 4 * (slot + 1)) {
+            int n = Math.max(slot + 1, raceNums.length);
+            int from = picks[id].length;
+            picks[id] = Arrays.copyOf(picks[id], 4 * n);
+            Arrays.fill(picks[id], from, 4 * n, NONE);
+            points[id] = Arrays.copyOf(points[id], n);
+        }
+        return picks[id];
+    }
+
+    private int player(String name) {
+        Integer id = ids.get(name);
+        if (null == id) {
+            throw new IllegalArgumentException("No such player: " + name);
+        }
+        return id;
+    }
+
+    private int slot(int raceNum) {
+        for (int r = 0; r < races; ++r) {
+            if (raceNums[r] == raceNum) {
+                return r;
+            }
+        }
+        throw new IllegalArgumentException("No such race: " + raceNum);
+    }
+
+    private static int car(String car) {
+        int c = Integer.parseInt(car);
+        if (c < 0 || c >= CARS) {
+            throw new IllegalArgumentException("No such car: " + car);
+        }
+        return c;
+    }
+
+    // how many races the player picked the car in
+    public int timesPicked(String player, int car) {
+        int id = player(player);
+        int n = 0;
+        for (int r = 0; r < races; ++r) {
+            BitSet b = pickers[r][car];
+            n += (null != b && b.get(id)) ? 1 : 0;
+        }
+        return n;
+    }
+
+    // how many picks the car got all season
+    public int timesPicked(int car) {
+        return timesPicked[car];
+    }
+
+    // the average finish of the player's picked cars that made the field, 0 for none
+    public double averageFinish(String player) {
+        int id = player(player);
+        return (0 == finishCounts[id]) ? 0 : (double) finishSums[id] / finishCounts[id];
+    }
+
+    // the players who picked the car in the race (by number), or in any race for raceNum < 0
+    public List<String> pickers(int car, int raceNum) {
+        BitSet all = new BitSet(names.size());
+        for (int r = 0; r < races; ++r) {
+            if (raceNum < 0 || raceNums[r] == raceNum) {
+                BitSet b = pickers[r][car];
+                if (null != b) {
+                    all.or(b);
+                }
+            }
+        }
+        List<String> result = new ArrayList<>(all.cardinality());
+        for (int id = all.nextSetBit(0); id >= 0; id = all.nextSetBit(id + 1)) {
+            result.add(names.get(id));
+        }
+        return result;
+    }
+
+    // <query> [<arg>...], for --query and the daemon's QUERY command
+    List<String> query(String[] query) {
+        if (0 == races) {
+            throw new IllegalArgumentException("No races indexed yet");
+        }
+        switch ((query.length == 0) ? "" : query[0].toLowerCase()) {
+            case "player":
+                if (query.length == 2) {
+                    return playerLines(query[1]);
+                } else if (query.length == 3) {
+                    int car = car(query[2]);
+                    return List.of(query[1] + " picked car " + car + " in " + timesPicked(query[1], car) + " of "
+                            + races + " races");
+                }
+                break;
+            case "car":
+                if (query.length == 2) {
+                    return carLines(car(query[1]));
+                }
+                break;
+            case "pickers":
+                if (query.length == 2 || query.length == 3) {
+                    int car = car(query[1]);
+                    int raceNum = (query.length == 3) ? raceNums[slot(Integer.parseInt(query[2]))] : -1;
+                    List<String> names = pickers(car, raceNum);
+                    List<String> lines = new ArrayList<>();
+                    lines.add(names.size() + " players picked car " + car
+                            + ((raceNum < 0) ? " this season" : " in race " + raceNum) + ":");
+                    names.forEach(n -> lines.add("  " + n));
+                    return lines;
+                }
+                break;
+            case "most-picked":
+                if (query.length <= 2) {
+                    return mostPickedLines((query.length == 2) ? Integer.parseInt(query[1]) : 10);
+                }
+                break;
+            case "best-finish":
+                if (query.length <= 2) {
+                    return bestFinishLines((query.length == 2) ? Integer.parseInt(query[1]) : 10);
+                }
+                break;
+            default:
+        }
+        throw new IllegalArgumentException("Invalid query: " + String.join(" ", query));
+    }
+
+    static List<String> usage() {
+        return List.of("  player <name> [<car>]", "  car <car>", "  pickers <car> [<race-num>]",
+                "  most-picked [<n>]", "  best-finish [<n>]");
+    }
+
+    private List<String> playerLines(String player) {
+        int id = player(player);
+        List<String> lines = new ArrayList<>();
+        int total = 0;
+        for (int r = 0; r < races; ++r) {
+            byte[] row = picks[id];
+            if (row.length <= 4 * r || NONE == row[4 * r]) {
+                lines.add(String.format("%02d-%-15s sat out", raceNums[r], tracks[r]));
+                continue;
+            }
+            total += points[id][r];
+            lines.add(String.format("%02d-%-15s %3d %3d %3d %3d %5d %6d", raceNums[r], tracks[r], row[4 * r],
+                    row[4 * r + 1], row[4 * r + 2], row[4 * r + 3], points[id][r], total));
+        }
+        lines.add(String.format("Average finish of picked cars: %.1f", averageFinish(player)));
+        return lines;
+    }
+
+    private List<String> carLines(int car) {
+        List<String> lines = new ArrayList<>();
+        for (int r = 0; r < races; ++r) {
+            BitSet b = pickers[r][car];
+            int picked = (null == b) ? 0 : b.cardinality();
+            if (Results.DNQ == finish[car][r]) {
+                lines.add(String.format("%02d-%-15s DNQ %20s picked by %d", raceNums[r], tracks[r], "", picked));
+            } else {
+                lines.add(String.format("%02d-%-15s finished %2d from %2d, %3d points, picked by %d", raceNums[r],
+                        tracks[r], finish[car][r], start[car][r], carPoints[car][r], picked));
+            }
+        }
+        lines.add("Picked " + timesPicked[car] + " times this season");
+        return lines;
+    }
+
+    private List<String> mostPickedLines(int n) {
+        Integer[] cars = new Integer[CARS];
+        for (int c = 0; c < CARS; ++c) {
+            cars[c] = c;
+        }
+        Arrays.sort(cars, Comparator.comparingInt((Integer c) -> -timesPicked[c]).thenComparingInt(c -> c));
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < Math.min(n, CARS) && timesPicked[cars[i]] > 0; ++i) {
+            lines.add(String.format("#%d, car %d picked %d times", i + 1, cars[i], timesPicked[cars[i]]));
+        }
+        return lines;
+    }
+
+    private List<String> bestFinishLines(int n) {
+        List<Integer> players = new ArrayList<>();
+        for (int id = 0; id < names.size(); ++id) {
+            if (finishCounts[id] > 0) {
+                players.add(id);
+            }
+        }
+        players.sort(Comparator.comparingDouble((Integer id) -> (double) finishSums[id] / finishCounts[id])
+                .thenComparing(id -> names.get(id)));
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < Math.min(n, players.size()); ++i) {
+            int id = players.get(i);
+            lines.add(String.format("#%d, %s averages %.1f over %d picked cars", i + 1, names.get(id),
+                    (double) finishSums[id] / finishCounts[id], finishCounts[id]));
+        }
+        return lines;
+    }
+}
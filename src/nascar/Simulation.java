@@ -0,0 +1,246 @@
+package nascar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import nascar.Pool.Player;
+import nascar.Pool.Results;
+import nascar.Pool.Standing;
+import nascar.Pool.Standings;
+
+// Monte Carlo projection of the rest of the season. Every remaining race draws each picked car's points from
+// what that car paid in the races already run, and every player keeps their latest picks. Iterations are split
+// into fixed size fork-join leaves, each with its own SplittableRandom and primitive tallies that are summed on
+// the way back up, so a given seed gives the same projection on any number of cores.
+class Simulation {
+    // how many places get a probability column
+    static final int PLACES = 10;
+    static final int LEAF = 10000;
+
+    private final String[] names;
+    private final int[] totals;
+    private final int[] balances;
+    private final int[] picks;
+    private final int[] cars;
+    private final int[][] samples = new int[Results.CARS][];
+    private final int races;
+    private final int places;
+    private final int ante;
+    private final int[] payouts;
+
+    Simulation(Season season, Standings standings, int races) {
+        if (null == season.getLastPlayers()) {
+            throw new IllegalArgumentException("No completed races to simulate from");
+        }
+        List<Player> players = season.getLastPlayers().getPlayers();
+        if (players.size() < 3) {
+            throw new IllegalArgumentException("Need at least 3 players to simulate payouts");
+        }
+        if (races < 1) {
+            throw new IllegalArgumentException("Invalid number of remaining races: " + races);
+        }
+
+        int n = players.size();
+        this.races = races;
+        this.places = Math.min(n, PLACES);
+        this.ante = season.getRules().getAnte();
+        this.payouts = season.getRules().getPayouts(n);
+        this.names = new String[n];
+        this.totals = new int[n];
+        this.balances = new int[n];
+        this.picks = new int[4 * n];
+        boolean[] picked = new boolean[Results.CARS];
+        for (int i = 0; i < n; ++i) {
+            Player p = players.get(i);
+            Standing s = standings.getTotals().get(p.getName());
+            names[i] = p.getName();
+            totals[i] = s.getTotal();
+            balances[i] = s.getBalance();
+            for (int j = 0; j < 4; ++j) {
+                picks[4 * i + j] = p.getPicks()[j];
+                picked[p.getPicks()[j]] = true;
+            }
+        }
+
+        List<int[]> history = season.getScores();
+        int count = 0;
+        for (int c = 0; c < Results.CARS; ++c) {
+            if (picked[c]) {
+                ++count;
+            }
+            samples[c] = new int[history.size()];
+            for (int r = 0; r < history.size(); ++r) {
+                samples[c][r] = history.get(r)[c];
+            }
+        }
+        this.cars = new int[count];
+        for (int c = 0, i = 0; c < Results.CARS; ++c) {
+            if (picked[c]) {
+                cars[i++] = c;
+            }
+        }
+    }
+
+    Tally run(int iterations, long seed) {
+        return ForkJoinPool.commonPool().invoke(new Worker(new SplittableRandom(seed), iterations));
+    }
+
+    // players by expected place, with their chance of each place and expected balance
+    List<String> lines(Tally tally) {
+        int n = names.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; ++i) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> tally.placeSum[i]));
+
+        List<String> lines = new ArrayList<>(n + 2);
+        StringBuilder header = new StringBuilder(String.format("%-15s%6s%9s", "", "Total", "Balance"));
+        for (int place = 1; place <= places; ++place) {
+            header.append(String.format("%7s", ordinal(place)));
+        }
+        header.append(String.format("%10s%11s", "Avg Place", "Exp Bal"));
+        lines.add(header.toString());
+
+        double iterations = tally.iterations;
+        for (int i : order) {
+            StringBuilder sb = new StringBuilder(String.format("%-15s", names[i]).replace(' ', '.'));
+            sb.append(String.format("%6d%9s", totals[i], Standing.balanceString(balances[i])));
+            for (int place = 0; place < places; ++place) {
+                sb.append(String.format("%6.1f%%", 100.0 * tally.places[i * places + place] / iterations));
+            }
+            sb.append(String.format("%10.2f%11s", 1 + tally.placeSum[i] / iterations,
+                    Standing.balanceString((int) Math.round(tally.balanceSum[i] / iterations))));
+            lines.add(sb.toString());
+        }
+        return lines;
+    }
+
+    private static String ordinal(int place) {
+        switch (place % 100 > 10 && place % 100 < 14 ? 0 : place % 10) {
+            case 1:
+                return place + "st";
+            case 2:
+                return place + "nd";
+            case 3:
+                return place + "rd";
+            default:
+                return place + "th";
+        }
+    }
+
+    // Per-leaf accumulators: how often each player finished in each tracked place, and the sums of their
+    // (zero-based) final places and final balances.
+    class Tally {
+        final long[] places = new long[names.length * Simulation.this.places];
+        final long[] placeSum = new long[names.length];
+        final long[] balanceSum = new long[names.length];
+        long iterations;
+
+        void add(Tally other) {
+            for (int i = 0; i < places.length; ++i) {
+                places[i] += other.places[i];
+            }
+            for (int i = 0; i < placeSum.length; ++i) {
+                placeSum[i] += other.placeSum[i];
+                balanceSum[i] += other.balanceSum[i];
+            }
+            iterations += other.iterations;
+        }
+    }
+
+    private class Worker extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+
+        private final SplittableRandom random;
+        private final int iterations;
+
+        Worker(SplittableRandom random, int iterations) {
+            this.random = random;
+            this.iterations = iterations;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (iterations <= LEAF) {
+                return simulate();
+            }
+
+            // split the random before forking so the leaves, and so the result, don't depend on scheduling
+            int half = Math.max(1, iterations / LEAF / 2) * LEAF;
+            Worker right = new Worker(random.split(), iterations - half);
+            Worker left = new Worker(random, half);
+            right.fork();
+            Tally tally = left.compute();
+            tally.add(right.join());
+            return tally;
+        }
+
+        private Tally simulate() {
+            int n = names.length;
+            Tally tally = new Tally();
+            int[] total = new int[n];
+            int[] balance = new int[n];
+            int[] sorted = new int[n];
+            long[] keys = new long[n];
+            int[] scores = new int[Results.CARS];
+
+            for (int it = 0; it < iterations; ++it) {
+                System.arraycopy(totals, 0, total, 0, n);
+                System.arraycopy(balances, 0, balance, 0, n);
+
+                for (int race = 0; race < races; ++race) {
+                    for (int c : cars) {
+                        int[] s = samples[c];
+                        scores[c] = s[random.nextInt(s.length)];
+                    }
+                    for (int i = 0, j = 0; i < n; ++i, j += 4) {
+                        int points = scores[picks[j]] + scores[picks[j + 1]] + scores[picks[j + 2]]
+                                + scores[picks[j + 3]];
+                        total[i] += points;
+                        balance[i] -= ante;
+                        keys[i] = Ranking.key(points, total[i]);
+                    }
+                    int[] top = Ranking.top(keys, payouts.length);
+                    for (int k = 0; k < top.length; ++k) {
+                        balance[top[k]] += ante + payouts[k];
+                    }
+                }
+
+                // players tied on total share the better place
+                System.arraycopy(total, 0, sorted, 0, n);
+                Arrays.sort(sorted);
+                for (int i = 0; i < n; ++i) {
+                    int place = n - above(sorted, total[i]);
+                    if (place < places) {
+                        ++tally.places[i * places + place];
+                    }
+                    tally.placeSum[i] += place;
+                    tally.balanceSum[i] += balance[i];
+                }
+            }
+            tally.iterations = iterations;
+            return tally;
+        }
+
+        // index of the first value greater than v
+        private int above(int[] sorted, int v) {
+            int lo = 0;
+            int hi = sorted.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sorted[mid] <= v) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package nascar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import nascar.Pool.Player;
+import nascar.Pool.Players;
+import nascar.Pool.Standing;
+import nascar.Pool.Standings;
+
+// Binary season snapshot, read through a memory mapped file. Every player has a fixed size record holding, for
+// the opening standings and then after each race, the points scored (or ABSENT), the total and the balance, so
+// any race of any player is a couple of index computations away, and a read-only lookup like --history only pages
+// in what it touches. Whoever replaces the file, or holds on to it while others might, reads a heap copy instead:
+// Windows won't replace a mapped file, and a mapping is only released once it is garbage collected. That is
+// scoreRace, which rebuilds the file it read, and the daemon, which holds one across RESULTS. Copying costs scoreRace
+// little, rebuilding reads every record anyway. Layout, all ints big endian:
+//
+//   header   magic, version, players, races
+//   races    races x (race number, track string offset)
+//   players  players x (name string offset, (races + 1) x (points, total, balance))
+//   names    players x player index, sorted by name
+//   strings  unsigned short length + UTF-8 bytes each
+class Snapshot {
+    static final int MAGIC = 0x4e535331;
+    static final int VERSION = 1;
+    static final int ABSENT = -1;
+    static final String FILE = "season.snap";
+
+    private static final int HEADER = 16;
+
+    private final File file;
+    private final ByteBuffer buf;
+    private final int players;
+    private final int races;
+    private final int playerTable;
+    private final int nameIndex;
+    private final int record;
+
+    Snapshot(File file) throws IOException {
+        this(file, map(file));
+    }
+
+    // the whole file copied into the heap, leaving nothing mapped
+    static Snapshot read(File file) throws IOException {
+        return new Snapshot(file, ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return map;
+        }
+    }
+
+    private Snapshot(File file, ByteBuffer buf) {
+        this.file = file;
+        this.buf = buf;
+        if (buf.capacity() < HEADER || buf.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a season snapshot: " + file.getAbsolutePath());
+        }
+        if (buf.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version [" + buf.getInt(4) + "]: "
+                    + file.getAbsolutePath());
+        }
+        this.players = buf.getInt(8);
+        this.races = buf.getInt(12);
+        this.record = 4 + 12 * (races + 1);
+        this.playerTable = HEADER + 8 * races;
+        this.nameIndex = playerTable + players * record;
+        if (players < 0 || races < 0 || (long) nameIndex + 4L * players > buf.capacity()) {
+            throw new IllegalArgumentException("Truncated season snapshot: " + file.getAbsolutePath());
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getPlayers() {
+        return players;
+    }
+
+    public int getRaces() {
+        return races;
+    }
+
+    public int getRaceNumber(int race) {
+        return buf.getInt(HEADER + 8 * race);
+    }
+
+    public String getTrack(int race) {
+        return string(buf.getInt(HEADER + 8 * race + 4));
+    }
+
+    public String getName(int player) {
+        return string(buf.getInt(playerTable + player * record));
+    }
+
+    // race is 0 based, points are ABSENT for a race the player sat out
+    public int getPoints(int player, int race) {
+        return column(player, race + 1, 0);
+    }
+
+    public int getTotal(int player, int race) {
+        return column(player, race + 1, 1);
+    }
+
+    public int getBalance(int player, int race) {
+        return column(player, race + 1, 2);
+    }
+
+    public int getTotal(int player) {
+        return column(player, races, 1);
+    }
+
+    public int getBalance(int player) {
+        return column(player, races, 2);
+    }
+
+    private int column(int player, int column, int field) {
+        return buf.getInt(playerTable + player * record + 4 + 12 * column + 4 * field);
+    }
+
+    // the player's index, or -1
+    public int indexOf(String name) {
+        int lo = 0;
+        int hi = players - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int player = buf.getInt(nameIndex + 4 * mid);
+            int cmp = getName(player).compareTo(name);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return player;
+            }
+        }
+        return -1;
+    }
+
+    // how many of the snapshot's races came before raceNum
+    public int racesBefore(int raceNum) {
+        int race = 0;
+        while (race < races && getRaceNumber(race) < raceNum) {
+            ++race;
+        }
+        return race;
+    }
+
+    // the standings going into the given (0 based) race, or the final standings for race == getRaces()
+    public Standings getStandings(int race) {
+        Standings standings = new Standings();
+        for (int p = 0; p < players; ++p) {
+            String name = getName(p);
+            standings.getTotals().put(name, new Standing(name, column(p, race, 1), column(p, race, 2)));
+        }
+        return standings;
+    }
+
+    private String string(int offset) {
+        int length = buf.getShort(offset) & 0xffff;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            bytes[i] = buf.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Collects a season race by race and writes it as a snapshot.
+    static class Builder {
+        private final List<Integer> raceNumbers = new ArrayList<>();
+        private final List<String> tracks = new ArrayList<>();
+        // per player, 3 ints per column
+        private final Map<String, int[]> rows = new LinkedHashMap<>();
+        private int columns;
+
+        // starts from the standings going into the first race
+        Builder(Standings opening) {
+            for (Standing s : opening.getTotals().values()) {
+                rows.put(s.getPlayer(), new int[] { ABSENT, s.getTotal(), s.getBalance() });
+            }
+            columns = 1;
+        }
+
+        // starts from the first races of an existing snapshot
+        Builder(Snapshot snapshot, int races) {
+            for (int race = 0; race < races; ++race) {
+                raceNumbers.add(snapshot.getRaceNumber(race));
+                tracks.add(snapshot.getTrack(race));
+            }
+            columns = races + 1;
+            for (int p = 0; p < snapshot.getPlayers(); ++p) {
+                int[] row = new int[3 * columns];
+                for (int c = 0; c < columns; ++c) {
+                    row[3 * c] = snapshot.column(p, c, 0);
+                    row[3 * c + 1] = snapshot.column(p, c, 1);
+                    row[3 * c + 2] = snapshot.column(p, c, 2);
+                }
+                rows.put(snapshot.getName(p), row);
+            }
+        }
+
+        public int getRaces() {
+            return columns - 1;
+        }
+
+        // adds a scored race, standings are the ones after it
+        void add(int raceNum, String track, Players players, Standings standings) {
+            Map<String, Integer> points = new HashMap<>();
+            for (Player p : players.getPlayers()) {
+                points.put(p.getName(), p.getPoints());
+            }
+            raceNumbers.add(raceNum);
+            tracks.add(track);
+            int c = columns++;
+
+            for (Standing s : standings.getTotals().values()) {
+                int[] row = rows.get(s.getPlayer());
+                if (null == row) {
+                    // joined this race, nothing before
+                    row = new int[3 * columns];
+                    for (int i = 0; i < c; ++i) {
+                        row[3 * i] = ABSENT;
+                    }
+                } else if (row.length < 3 * columns) {
+                    row = Arrays.copyOf(row, Math.max(3 * columns, 2 * row.length));
+                }
+                row[3 * c] = points.getOrDefault(s.getPlayer(), ABSENT);
+                row[3 * c + 1] = s.getTotal();
+                row[3 * c + 2] = s.getBalance();
+                rows.put(s.getPlayer(), row);
+            }
+
+            // anyone dropped from the standings keeps what they had
+            for (Map.Entry<String, int[]> e : rows.entrySet()) {
+                if (!standings.getTotals().containsKey(e.getKey())) {
+                    int[] row = e.getValue();
+                    if (row.length < 3 * columns) {
+                        row = Arrays.copyOf(row, Math.max(3 * columns, 2 * row.length));
+                        e.setValue(row);
+                    }
+                    row[3 * c] = ABSENT;
+                    row[3 * c + 1] = row[3 * c - 2];
+                    row[3 * c + 2] = row[3 * c - 1];
+                }
+            }
+        }
+
+        // writes to a temporary file first, so a reader never maps a half written snapshot
+        void write(File file) throws IOException {
+            int players = rows.size();
+            int races = columns - 1;
+            int record = 4 + 12 * columns;
+            int playerTable = HEADER + 8 * races;
+            int strings = playerTable + players * record + 4 * players;
+
+            List<String> names = new ArrayList<>(rows.keySet());
+            byte[][] nameBytes = new byte[players][];
+            byte[][] trackBytes = new byte[races][];
+            int size = strings;
+            for (int p = 0; p < players; ++p) {
+                nameBytes[p] = utf8(names.get(p));
+                size += 2 + nameBytes[p].length;
+            }
+            for (int r = 0; r < races; ++r) {
+                trackBytes[r] = utf8(tracks.get(r));
+                size += 2 + trackBytes[r].length;
+            }
+
+            ByteBuffer out = ByteBuffer.allocate(size);
+            out.putInt(MAGIC).putInt(VERSION).putInt(players).putInt(races);
+            int offset = strings;
+            for (int r = 0; r < races; ++r) {
+                out.putInt(raceNumbers.get(r)).putInt(offset);
+                offset = putString(out, offset, trackBytes[r]);
+            }
+            for (int p = 0; p < players; ++p) {
+                out.position(playerTable + p * record);
+                out.putInt(offset);
+                offset = putString(out, offset, nameBytes[p]);
+                out.position(playerTable + p * record + 4);
+                int[] row = rows.get(names.get(p));
+                for (int i = 0; i < 3 * columns; ++i) {
+                    out.putInt(row[i]);
+                }
+            }
+
+            Integer[] byName = new Integer[players];
+            for (int p = 0; p < players; ++p) {
+                byName[p] = p;
+            }
+            Arrays.sort(byName, (a, b) -> names.get(a).compareTo(names.get(b)));
+            out.position(playerTable + players * record);
+            for (int p : byName) {
+                out.putInt(p);
+            }
+
+            Metrics.Span span = Metrics.begin(Metrics.Phase.WRITE);
+            File tmp = new File(file.getPath() + ".tmp");
+            Files.write(tmp.toPath(), out.array());
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            Metrics.end(span, players, size);
+        }
+
+        private static byte[] utf8(String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xffff) {
+                throw new IllegalArgumentException("String too long for snapshot: " + s.substring(0, 20) + "...");
+            }
+            return bytes;
+        }
+
+        // writes the string at offset, leaving the buffer position alone, and returns the next free offset
+        private static int putString(ByteBuffer out, int offset, byte[] bytes) {
+            out.putShort(offset, (short) bytes.length);
+            for (int i = 0; i < bytes.length; ++i) {
+                out.put(offset + 2 + i, bytes[i]);
+            }
+            return offset + 2 + bytes.length;
+        }
+    }
+}